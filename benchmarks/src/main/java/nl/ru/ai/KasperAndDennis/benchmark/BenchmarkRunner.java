@@ -0,0 +1,26 @@
+package nl.ru.ai.KasperAndDennis.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Main class of benchmarks.jar. Takes the usual JMH command line (a benchmark filter, -p size=300,1000, -f, -wi,
+ * -i, -l, ...) and adds -prof gc when no profiler is given, so every result comes with its allocation rate and
+ * bytes per operation.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class BenchmarkRunner {
+
+	static final long SEED = 42;
+
+	public static void main(String[] args) throws Exception {
+		List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+		if (!arguments.contains("-prof")) {
+			arguments.add("-prof");
+			arguments.add("gc");
+		}
+		org.openjdk.jmh.Main.main(arguments.toArray(new String[arguments.size()]));
+	}
+}
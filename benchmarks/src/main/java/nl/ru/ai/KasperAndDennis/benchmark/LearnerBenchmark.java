@@ -0,0 +1,82 @@
+package nl.ru.ai.KasperAndDennis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nl.ru.ai.KasperAndDennis.reinforcement.ParallelQLearning;
+import nl.ru.ai.KasperAndDennis.reinforcement.UpdateStrategy;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+
+/**
+ * Throughput of single-threaded Q-learning in a headless environment, in steps per second.
+ * Every operation is a training run of a fixed number of episodes; the steps counter reports how many steps
+ * these took per second, which does not depend on how long the episodes of a map are.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LearnerBenchmark {
+
+	/**
+	 * The width and height of the generated maps
+	 */
+	private static final int SIZE = 100;
+	private static final int EPOCHS = 2000;
+	/**
+	 * Cuts off the long episodes on the generated maps, so an operation stays under a second
+	 */
+	private static final long MAX_EPISODE_STEPS = 10000;
+
+	@Param({ "RUSSELL_NORVIG", "OBSTACLES", "NEGREWARD", "RANDOM", "MAZE", "ROOMS" })
+	public BenchmarkMaps.Map map;
+
+	private MarkovDecisionProblem mdp;
+
+	/**
+	 * The steps taken by the training runs of one iteration, reported by JMH per second
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Steps {
+		public long steps;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			steps = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		mdp = BenchmarkMaps.create(map, SIZE, BenchmarkRunner.SEED);
+		mdp.setDeterministic();
+	}
+
+	@Benchmark
+	public double qLearning(Steps counter) {
+		ParallelQLearning learner = new ParallelQLearning(mdp, 1, UpdateStrategy.HOGWILD);
+		learner.setSeed(BenchmarkRunner.SEED);
+		learner.setMaxEpisodeSteps(MAX_EPISODE_STEPS);
+		double value = learner.train(EPOCHS, 0.9, 0.2, 0.2).getMaxValue(0);
+		counter.steps += learner.getSteps();
+		return value;
+	}
+}
@@ -0,0 +1,81 @@
+package nl.ru.ai.KasperAndDennis.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nl.ru.ai.KasperAndDennis.reinforcement.DoubleValueTable;
+import nl.ru.ai.KasperAndDennis.reinforcement.MappedValueTable;
+import nl.ru.ai.KasperAndDennis.reinforcement.UpdateScheme;
+import nl.ru.ai.KasperAndDennis.reinforcement.ValueIteration;
+import nl.ru.ai.KasperAndDennis.reinforcement.ValueTable;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+
+/**
+ * Cost of one sweep of value iteration over all states, for every update scheme and with the values on the
+ * heap (DoubleValueTable) or in a memory-mapped file (MappedValueTable).
+ * Divide the score by the number of states for the cost of one Bellman backup.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlannerBenchmark {
+
+	@Param({ "RUSSELL_NORVIG", "OBSTACLES", "NEGREWARD", "RANDOM", "MAZE", "ROOMS" })
+	public BenchmarkMaps.Map map;
+
+	@Param({ "100" })
+	public int size;
+
+	@Param({ "JACOBI", "GAUSS_SEIDEL", "RED_BLACK" })
+	public UpdateScheme scheme;
+
+	@Param({ "HEAP", "MAPPED" })
+	public String store;
+
+	private MarkovDecisionProblem mdp;
+	private ValueIteration valueIteration;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		mdp = BenchmarkMaps.create(map, size, BenchmarkRunner.SEED);
+		valueIteration = new ValueIteration(mdp, 0.9, createTable(), createTable(), false);
+		valueIteration.setUpdateScheme(scheme);
+		// Never converge, so every call does exactly one sweep
+		valueIteration.setTolerance(Double.MIN_VALUE);
+		valueIteration.setMaxIterations(1);
+	}
+
+	private ValueTable createTable() throws IOException {
+		if (store.equals("HEAP")) {
+			return new DoubleValueTable(mdp.getNumStates());
+		}
+		File file = File.createTempFile("values", ".vtab");
+		file.deleteOnExit();
+		return MappedValueTable.create(file.getPath(), mdp.getNumStates());
+	}
+
+	@Benchmark
+	public double bellmanSweep() {
+		valueIteration.valueIteration();
+		return valueIteration.getValue(0, 0);
+	}
+}
@@ -0,0 +1,103 @@
+package nl.ru.ai.KasperAndDennis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nl.ru.ai.vroon.mdp.Action;
+import nl.ru.ai.vroon.mdp.BatchEnvironment;
+import nl.ru.ai.vroon.mdp.HeadlessEnvironment;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+import nl.ru.ai.vroon.mdp.SplitMixRandom;
+
+/**
+ * Cost of one step of a random agent in each of the simulators.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulatorBenchmark {
+
+	private static final Action[] ACTIONS = Action.values();
+	private static final int AGENTS = 256;
+
+	@Param({ "RUSSELL_NORVIG", "OBSTACLES", "NEGREWARD", "RANDOM", "MAZE", "ROOMS" })
+	public BenchmarkMaps.Map map;
+
+	@Param({ "100" })
+	public int size;
+
+	private MarkovDecisionProblem mdp;
+	private HeadlessEnvironment headless;
+	private BatchEnvironment batch;
+	private SplitMixRandom rand;
+	private int[] actions;
+	private double[] rewards;
+	private int[] nextStates;
+	private boolean[] terminated;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		mdp = BenchmarkMaps.create(map, size, BenchmarkRunner.SEED);
+		headless = new HeadlessEnvironment(BenchmarkMaps.create(map, size, BenchmarkRunner.SEED));
+		batch = new BatchEnvironment(BenchmarkMaps.create(map, size, BenchmarkRunner.SEED), AGENTS);
+		batch.setRandomStarts(true);
+		rand = new SplitMixRandom(BenchmarkRunner.SEED);
+		actions = new int[AGENTS];
+		rewards = new double[AGENTS];
+		nextStates = new int[AGENTS];
+		terminated = new boolean[AGENTS];
+	}
+
+	/**
+	 * One step of MarkovDecisionProblem.performAction
+	 */
+	@Benchmark
+	public double performAction() {
+		if (mdp.isTerminated()) {
+			mdp.restart();
+		}
+		return mdp.performAction(ACTIONS[rand.nextInt(ACTIONS.length)]);
+	}
+
+	/**
+	 * One step of HeadlessEnvironment.performAction
+	 */
+	@Benchmark
+	public double headlessStep() {
+		if (headless.isTerminated()) {
+			headless.restart();
+		}
+		return headless.performAction(ACTIONS[rand.nextInt(ACTIONS.length)]);
+	}
+
+	/**
+	 * One agent step of BatchEnvironment.step, which steps all 256 agents at once
+	 */
+	@Benchmark
+	@OperationsPerInvocation(AGENTS)
+	public double batchStep() {
+		for (int agent = 0; agent < AGENTS; agent++) {
+			actions[agent] = rand.nextInt(ACTIONS.length);
+		}
+		batch.step(actions, rewards, nextStates, terminated);
+		return rewards[0];
+	}
+}
@@ -0,0 +1,108 @@
+package nl.ru.ai.KasperAndDennis.benchmark;
+
+import nl.ru.ai.vroon.mdp.Field;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+
+/**
+ * The maps the benchmarks run on: the three maps of Main, and generated maps of any size (see MapGenerator).
+ * All maps are made without a display.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class BenchmarkMaps {
+
+	/**
+	 * Enumerates the maps by name, so a benchmark can be parameterised with them
+	 */
+	public enum Map {
+		RUSSELL_NORVIG, // map 1 of Main: the 4x3 map of Chapter 17 of Russell & Norvig
+		OBSTACLES,      // map 2 of Main: 10x10 with one reward and five obstacles
+		NEGREWARD,      // map 3 of Main: 10x10 with one reward and one negative reward
+		RANDOM,         // a square map with random obstacles (see random())
+		MAZE,           // a square maze (see MapGenerator.Layout)
+		ROOMS;          // a square map of rooms and corridors (see MapGenerator.Layout)
+
+		/**
+		 * @return true if the map is generated with a given size, false if it is one of the maps of Main
+		 */
+		public boolean isGenerated() {
+			return this == RANDOM || this == MAZE || this == ROOMS;
+		}
+	}
+
+	/**
+	 * Makes the given map
+	 *
+	 * @param map
+	 * @param size the width and height of a generated map (ignored for the maps of Main)
+	 * @param seed the seed of a generated map and of the MDP's random number generator
+	 * @return
+	 */
+	public static MarkovDecisionProblem create(Map map, int size, long seed) {
+		MarkovDecisionProblem mdp;
+		switch (map) {
+		case RUSSELL_NORVIG:
+			mdp = russellNorvig();
+			break;
+		case OBSTACLES:
+			mdp = obstacles();
+			break;
+		case NEGREWARD:
+			mdp = negReward();
+			break;
+		case MAZE:
+			mdp = new MapGenerator().generate(MapGenerator.Layout.MAZE, size, size, seed);
+			break;
+		case ROOMS:
+			mdp = new MapGenerator().generate(MapGenerator.Layout.ROOMS, size, size, seed);
+			break;
+		default:
+			mdp = random(size, size, 0.1, seed);
+			break;
+		}
+		mdp.setSeed(seed);
+		return mdp;
+	}
+
+	public static MarkovDecisionProblem russellNorvig() {
+		MarkovDecisionProblem mdp = new MarkovDecisionProblem(4, 3, false);
+		mdp.setField(1, 1, Field.OBSTACLE);
+		mdp.setField(3, 1, Field.NEGREWARD);
+		mdp.setField(3, 2, Field.REWARD);
+		return mdp;
+	}
+
+	public static MarkovDecisionProblem obstacles() {
+		MarkovDecisionProblem mdp = new MarkovDecisionProblem(10, 10, false);
+		mdp.setField(5, 5, Field.REWARD);
+		mdp.setField(1, 1, Field.OBSTACLE);
+		mdp.setField(1, 2, Field.OBSTACLE);
+		mdp.setField(3, 4, Field.OBSTACLE);
+		mdp.setField(5, 6, Field.OBSTACLE);
+		mdp.setField(7, 1, Field.OBSTACLE);
+		return mdp;
+	}
+
+	public static MarkovDecisionProblem negReward() {
+		MarkovDecisionProblem mdp = new MarkovDecisionProblem(10, 10, false);
+		mdp.setField(5, 5, Field.REWARD);
+		mdp.setField(2, 3, Field.NEGREWARD);
+		return mdp;
+	}
+
+	/**
+	 * Makes a map with random obstacles, one reward and one negative reward, where the reward can be reached from
+	 * the initial state (see MapGenerator)
+	 *
+	 * @param width
+	 * @param height
+	 * @param obstacleDensity the probability that a field becomes an obstacle
+	 * @param seed
+	 * @return
+	 */
+	public static MarkovDecisionProblem random(int width, int height, double obstacleDensity, long seed) {
+		MapGenerator generator = new MapGenerator();
+		generator.setObstacleDensity(obstacleDensity);
+		return generator.generate(MapGenerator.Layout.OBSTACLES, width, height, seed);
+	}
+}
@@ -0,0 +1,361 @@
+package nl.ru.ai.KasperAndDennis.benchmark;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import nl.ru.ai.vroon.mdp.Field;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+import nl.ru.ai.vroon.mdp.SplitMixRandom;
+
+/**
+ * Generates maps of any size (from 10x10 up to 10000x10000) for stress and scaling tests. The same settings and
+ * seed always give the same map.
+ *
+ * The obstacles are laid out first (see Layout), then the initial state, the negative rewards and the rewards are
+ * put on empty fields. Every reward is put on a field the agent can reach from the initial state without passing
+ * through a terminal state, so a generated map can always be solved (see isSolvable).
+ *
+ * The landscape is built as one array and handed to the MDP as a whole, so nothing is set field by field.
+ * Generating a 10000x10000 map takes about 2.6 GB of heap: the successor index of the MDP is one array of
+ * 1.6 GB, the landscape takes 100 MB, and the 400 MB search queue of placeTerminals is only garbage by the time
+ * the index is built. Planning or learning on such a map needs more, for instance 800 MB for every table of
+ * values or 3.2 GB for a DoubleQTable.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class MapGenerator {
+
+	/**
+	 * Enumerates the ways the obstacles can be laid out
+	 */
+	public enum Layout {
+		OBSTACLES, // every field is an obstacle with the obstacle density as probability
+		MAZE,      // a maze with corridors of width 1 and exactly one path between any two fields
+		ROOMS      // rectangular rooms on a grid, joined by corridors of width 1
+	}
+
+	private static final byte OBSTACLE = (byte) Field.OBSTACLE.ordinal();
+	private static final byte EMPTY = (byte) Field.EMPTY.ordinal();
+	private static final byte REWARD = (byte) Field.REWARD.ordinal();
+	private static final byte NEGREWARD = (byte) Field.NEGREWARD.ordinal();
+	// The number of initial states that are tried before the map is considered too full
+	private static final int MAX_ATTEMPTS = 100;
+	// The probability that two rooms above each other are joined, besides the joins that keep all rooms connected
+	private static final double VERTICAL_JOIN = 0.25;
+
+	private double obstacleDensity = 0.1;
+	private int rewards = 1;
+	private int negRewards = 1;
+	private int minRoomSize = 3;
+	private int maxRoomSize = 9;
+
+	/**
+	 * Generates a map
+	 *
+	 * @param layout
+	 * @param width
+	 * @param height
+	 * @param seed
+	 * @return an MDP that does not show its progress, with the agent in the initial state
+	 * @throws IllegalArgumentException if the rewards do not fit on the map
+	 */
+	public MarkovDecisionProblem generate(Layout layout, int width, int height, long seed) {
+		SplitMixRandom rand = new SplitMixRandom(seed);
+		byte[] landscape = new byte[width * height];
+		switch (layout) {
+		case MAZE:
+			carveMaze(landscape, width, height, rand);
+			break;
+		case ROOMS:
+			carveRooms(landscape, width, height, rand);
+			break;
+		default:
+			scatterObstacles(landscape, rand);
+			break;
+		}
+		int start = placeTerminals(landscape, width, height, rand);
+		MarkovDecisionProblem mdp = new MarkovDecisionProblem(width, height, landscape);
+		mdp.setInitialState(start);
+		mdp.restart();
+		return mdp;
+	}
+
+	private void scatterObstacles(byte[] landscape, SplitMixRandom rand) {
+		for (int state = 0; state < landscape.length; state++) {
+			landscape[state] = (rand.nextDouble() < obstacleDensity) ? OBSTACLE : EMPTY;
+		}
+	}
+
+	/**
+	 * Carves a maze with a randomised depth-first search over the fields with even coordinates; the fields
+	 * between two of them are the walls that are knocked down
+	 */
+	private static void carveMaze(byte[] landscape, int width, int height, SplitMixRandom rand) {
+		Arrays.fill(landscape, OBSTACLE);
+		int cellsX = (width + 1) / 2, cellsY = (height + 1) / 2;
+		int[] stack = new int[cellsX * cellsY];
+		int[] neighbours = new int[4];
+		int size = 0;
+		int first = rand.nextInt(cellsX) * 2 + rand.nextInt(cellsY) * 2 * width;
+		landscape[first] = EMPTY;
+		stack[size++] = first;
+		while (size > 0) {
+			int state = stack[size - 1];
+			int x = state % width, y = state / width;
+			int count = 0;
+			if (x >= 2 && landscape[state - 2] == OBSTACLE) {
+				neighbours[count++] = -1;
+			}
+			if (x + 2 < width && landscape[state + 2] == OBSTACLE) {
+				neighbours[count++] = 1;
+			}
+			if (y >= 2 && landscape[state - 2 * width] == OBSTACLE) {
+				neighbours[count++] = -width;
+			}
+			if (y + 2 < height && landscape[state + 2 * width] == OBSTACLE) {
+				neighbours[count++] = width;
+			}
+			if (count == 0) {
+				size--;
+				continue;
+			}
+			int step = neighbours[rand.nextInt(count)];
+			landscape[state + step] = EMPTY;
+			landscape[state + 2 * step] = EMPTY;
+			stack[size++] = state + 2 * step;
+		}
+	}
+
+	/**
+	 * Divides the map into blocks of maxRoomSize+1 fields and carves a room of random size in every block. The
+	 * rooms of a row of blocks are joined from left to right, and every row is joined to the row above it at
+	 * least once, so all rooms are connected.
+	 */
+	private void carveRooms(byte[] landscape, int width, int height, SplitMixRandom rand) {
+		Arrays.fill(landscape, OBSTACLE);
+		int blocksX = Math.max(1, width / (maxRoomSize + 1));
+		int blocksY = Math.max(1, height / (maxRoomSize + 1));
+		int[] centres = new int[blocksX * blocksY];
+		for (int by = 0; by < blocksY; by++) {
+			for (int bx = 0; bx < blocksX; bx++) {
+				// The last block of a row or column also gets the fields that are left over
+				int left = bx * width / blocksX, right = (bx + 1) * width / blocksX;
+				int bottom = by * height / blocksY, top = (by + 1) * height / blocksY;
+				int roomWidth = randomSize(right - left, rand), roomHeight = randomSize(top - bottom, rand);
+				int x0 = left + rand.nextInt(right - left - roomWidth + 1);
+				int y0 = bottom + rand.nextInt(top - bottom - roomHeight + 1);
+				for (int y = y0; y < y0 + roomHeight; y++) {
+					Arrays.fill(landscape, x0 + y * width, x0 + roomWidth + y * width, EMPTY);
+				}
+				centres[bx + by * blocksX] = (x0 + roomWidth / 2) + (y0 + roomHeight / 2) * width;
+			}
+		}
+		for (int by = 0; by < blocksY; by++) {
+			int join = rand.nextInt(blocksX);
+			for (int bx = 0; bx < blocksX; bx++) {
+				int room = centres[bx + by * blocksX];
+				if (bx + 1 < blocksX) {
+					carveCorridor(landscape, width, room, centres[bx + 1 + by * blocksX]);
+				}
+				if (by + 1 < blocksY && (bx == join || rand.nextDouble() < VERTICAL_JOIN)) {
+					carveCorridor(landscape, width, room, centres[bx + (by + 1) * blocksX]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a room size between minRoomSize and maxRoomSize that leaves a wall in a block of the given size
+	 */
+	private int randomSize(int blockSize, SplitMixRandom rand) {
+		int max = Math.max(1, Math.min(maxRoomSize, blockSize - 1));
+		int min = Math.min(minRoomSize, max);
+		return min + rand.nextInt(max - min + 1);
+	}
+
+	/**
+	 * Carves a horizontal and then a vertical corridor from one state to the other
+	 */
+	private static void carveCorridor(byte[] landscape, int width, int from, int to) {
+		int x = from % width, y = from / width;
+		int toX = to % width, toY = to / width;
+		Arrays.fill(landscape, Math.min(x, toX) + y * width, Math.max(x, toX) + 1 + y * width, EMPTY);
+		for (int row = Math.min(y, toY); row <= Math.max(y, toY); row++) {
+			landscape[toX + row * width] = EMPTY;
+		}
+	}
+
+	/**
+	 * Picks the initial state and puts the negative rewards and the rewards on empty fields, so that every reward
+	 * can be reached from the initial state
+	 *
+	 * @return the initial state
+	 */
+	private int placeTerminals(byte[] landscape, int width, int height, SplitMixRandom rand) {
+		int[] queue = new int[landscape.length];
+		BitSet visited = new BitSet(landscape.length);
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			int start = rand.nextInt(landscape.length);
+			if (landscape[start] != EMPTY) {
+				continue;
+			}
+			// The negative rewards go anywhere the agent can reach...
+			int reached = emptyReachable(landscape, width, height, start, queue, visited);
+			if (reached < negRewards + rewards) {
+				continue;
+			}
+			int[] placed = pick(queue, reached, negRewards, rand);
+			for (int state : placed) {
+				landscape[state] = NEGREWARD;
+			}
+			// ...but they may cut off fields, so the rewards only go where the agent can still get to
+			reached = emptyReachable(landscape, width, height, start, queue, visited);
+			if (reached < rewards) {
+				for (int state : placed) {
+					landscape[state] = EMPTY;
+				}
+				continue;
+			}
+			for (int state : pick(queue, reached, rewards, rand)) {
+				landscape[state] = REWARD;
+			}
+			return start;
+		}
+		throw new IllegalArgumentException("There is no room for " + rewards + " rewards and " + negRewards
+				+ " negative rewards on a " + width + "x" + height + " map with these settings.");
+	}
+
+	/**
+	 * Picks distinct states from the first count states of the array, which are shuffled in the process
+	 */
+	private static int[] pick(int[] states, int count, int number, SplitMixRandom rand) {
+		for (int i = 0; i < number; i++) {
+			int j = i + rand.nextInt(count - i);
+			int state = states[j];
+			states[j] = states[i];
+			states[i] = state;
+		}
+		return Arrays.copyOf(states, number);
+	}
+
+	/**
+	 * Finds the empty fields that can be reached from the start without entering an obstacle or a terminal state
+	 *
+	 * @param queue   is filled with the reached empty fields, except for the start
+	 * @param visited
+	 * @return the number of reached empty fields
+	 */
+	private static int emptyReachable(byte[] landscape, int width, int height, int start, int[] queue,
+			BitSet visited) {
+		visited.clear();
+		visited.set(start);
+		queue[0] = start;
+		int head = 0, tail = 1;
+		while (head < tail) {
+			int state = queue[head++];
+			int x = state % width, y = state / width;
+			if (x > 0 && !visited.get(state - 1) && landscape[state - 1] == EMPTY) {
+				visited.set(state - 1);
+				queue[tail++] = state - 1;
+			}
+			if (x + 1 < width && !visited.get(state + 1) && landscape[state + 1] == EMPTY) {
+				visited.set(state + 1);
+				queue[tail++] = state + 1;
+			}
+			if (y > 0 && !visited.get(state - width) && landscape[state - width] == EMPTY) {
+				visited.set(state - width);
+				queue[tail++] = state - width;
+			}
+			if (y + 1 < height && !visited.get(state + width) && landscape[state + width] == EMPTY) {
+				visited.set(state + width);
+				queue[tail++] = state + width;
+			}
+		}
+		// Leave out the start
+		System.arraycopy(queue, 1, queue, 0, tail - 1);
+		return tail - 1;
+	}
+
+	/**
+	 * Checks if a reward can be reached from the initial state of the MDP without passing through a terminal state
+	 *
+	 * @param mdp
+	 * @return
+	 */
+	public static boolean isSolvable(MarkovDecisionProblem mdp) {
+		int start = mdp.getInitialState();
+		if (mdp.getField(start) == Field.REWARD) {
+			return true;
+		}
+		if (mdp.getField(start) != Field.EMPTY) {
+			return false;
+		}
+		byte[] landscape = mdp.getLandscape();
+		int[] queue = new int[landscape.length];
+		int reached = emptyReachable(landscape, mdp.getWidth(), mdp.getHeight(), start, queue, new BitSet());
+		queue[reached++] = start;
+		for (int i = 0; i < reached; i++) {
+			int state = queue[i], x = mdp.getStateX(state), y = mdp.getStateY(state);
+			if ((x > 0 && landscape[state - 1] == REWARD) || (x + 1 < mdp.getWidth() && landscape[state + 1] == REWARD)
+					|| (y > 0 && landscape[state - mdp.getWidth()] == REWARD)
+					|| (y + 1 < mdp.getHeight() && landscape[state + mdp.getWidth()] == REWARD)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the probability that a field becomes an obstacle in the OBSTACLES layout (0.1 by default)
+	 *
+	 * @param obstacleDensity
+	 */
+	public void setObstacleDensity(double obstacleDensity) {
+		if (obstacleDensity >= 0 && obstacleDensity < 1) {
+			this.obstacleDensity = obstacleDensity;
+		} else {
+			System.err.println("ERROR:MapGenerator:setObstacleDensity: the density should be at least 0 and below 1.");
+		}
+	}
+
+	/**
+	 * Sets the number of rewards (1 by default)
+	 *
+	 * @param rewards
+	 */
+	public void setRewards(int rewards) {
+		if (rewards >= 1) {
+			this.rewards = rewards;
+		} else {
+			System.err.println("ERROR:MapGenerator:setRewards: at least one reward is needed.");
+		}
+	}
+
+	/**
+	 * Sets the number of negative rewards (1 by default)
+	 *
+	 * @param negRewards
+	 */
+	public void setNegRewards(int negRewards) {
+		if (negRewards >= 0) {
+			this.negRewards = negRewards;
+		} else {
+			System.err.println("ERROR:MapGenerator:setNegRewards: the number of negative rewards cannot be negative.");
+		}
+	}
+
+	/**
+	 * Sets the smallest and largest width and height of a room in the ROOMS layout (3 and 9 by default)
+	 *
+	 * @param minRoomSize
+	 * @param maxRoomSize
+	 */
+	public void setRoomSize(int minRoomSize, int maxRoomSize) {
+		if (minRoomSize >= 1 && maxRoomSize >= minRoomSize) {
+			this.minRoomSize = minRoomSize;
+			this.maxRoomSize = maxRoomSize;
+		} else {
+			System.err.println("ERROR:MapGenerator:setRoomSize: the sizes should be at least 1 and in order.");
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package nl.ru.ai.KasperAndDennis.metrics;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Turns an episode log written by EpisodeWriter into text, one record at a time.
+ *
+ * Usage: EpisodeExport input.bin output.txt [table|cumulative]
+ * table (the default) writes one tab-separated line per episode (episode, steps, return, epsilon);
+ * cumulative writes the running sum of the returns, tab-separated on one line, starting with 0.0
+ * (the format of cumulative_rewards.txt).
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class EpisodeExport {
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("Usage: EpisodeExport input.bin output.txt [table|cumulative]");
+			return;
+		}
+		try {
+			if (args.length > 2 && args[2].equals("cumulative")) {
+				exportCumulativeRewards(args[0], args[1]);
+			} else {
+				exportTable(args[0], args[1]);
+			}
+		} catch (IOException e) {
+			System.out.println("Something went wrong: " + e);
+		}
+	}
+
+	/**
+	 * Writes one tab-separated line per episode, after a header line
+	 *
+	 * @param input  the episode log
+	 * @param output the text file
+	 * @throws IOException
+	 */
+	public static void exportTable(String input, String output) throws IOException {
+		try (EpisodeReader reader = new EpisodeReader(input);
+				Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), "utf-8"))) {
+			writer.write("episode\tsteps\treturn\tepsilon\n");
+			while (reader.next()) {
+				writer.write(reader.getEpisode() + "\t" + reader.getSteps() + "\t" + reader.getReturn() + "\t"
+						+ reader.getEpsilon() + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Writes the cumulative return after every episode, tab-separated, starting with 0.0
+	 *
+	 * @param input  the episode log
+	 * @param output the text file
+	 * @throws IOException
+	 */
+	public static void exportCumulativeRewards(String input, String output) throws IOException {
+		try (EpisodeReader reader = new EpisodeReader(input);
+				Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), "UTF-8"))) {
+			double cumulativeReward = 0.0;
+			writer.write(Double.toString(cumulativeReward) + '\t');
+			while (reader.next()) {
+				cumulativeReward += reader.getReturn();
+				writer.write(Double.toString(cumulativeReward) + '\t');
+			}
+		}
+	}
+}
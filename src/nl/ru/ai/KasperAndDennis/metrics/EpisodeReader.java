@@ -0,0 +1,103 @@
+package nl.ru.ai.KasperAndDennis.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the records of a file written by EpisodeWriter one at a time, through a bounded buffer.
+ *
+ * Usage: while (reader.next()) { reader.getEpisode(); ... }
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class EpisodeReader implements Closeable {
+
+	private static final int BUFFER_RECORDS = 4096;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * EpisodeWriter.RECORD_BYTES);
+	private int episode, steps;
+	private double episodeReturn, epsilon;
+
+	/**
+	 * Opens the given file and checks its header
+	 *
+	 * @param path
+	 * @throws IOException if the file cannot be read or was not written by EpisodeWriter
+	 */
+	public EpisodeReader(String path) throws IOException {
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		buffer.limit(0);
+		if (!fill(EpisodeWriter.HEADER_BYTES) || buffer.getInt() != EpisodeWriter.MAGIC) {
+			channel.close();
+			throw new IOException(path + " is not an episode log");
+		}
+		int version = buffer.getInt();
+		if (version != EpisodeWriter.VERSION) {
+			channel.close();
+			throw new IOException(path + " has unsupported episode log version " + version);
+		}
+	}
+
+	/**
+	 * Moves to the next record
+	 *
+	 * @return false if there are no more (complete) records
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		if (!fill(EpisodeWriter.RECORD_BYTES)) {
+			return false;
+		}
+		episode = buffer.getInt();
+		steps = buffer.getInt();
+		episodeReturn = buffer.getDouble();
+		epsilon = buffer.getDouble();
+		return true;
+	}
+
+	/**
+	 * Makes sure at least the given number of bytes is buffered
+	 *
+	 * @return false if the file ends before that
+	 */
+	private boolean fill(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes) {
+			return true;
+		}
+		buffer.compact();
+		while (buffer.position() < bytes) {
+			if (channel.read(buffer) < 0) {
+				buffer.flip();
+				return false;
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+
+	public int getEpisode() {
+		return episode;
+	}
+
+	public int getSteps() {
+		return steps;
+	}
+
+	public double getReturn() {
+		return episodeReturn;
+	}
+
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,143 @@
+package nl.ru.ai.KasperAndDennis.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams one fixed-size binary record per episode to a file, through a bounded buffer,
+ * so the memory used does not grow with the length of a run.
+ *
+ * The file starts with a header (MAGIC, VERSION) followed by records of RECORD_BYTES bytes each:
+ * episode (int), steps (int), return (double) and epsilon (double), all big-endian.
+ * Use EpisodeReader to read them back and EpisodeExport to turn them into text.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class EpisodeWriter implements Closeable {
+
+	public static final int MAGIC = 0x45504953; // "EPIS"
+	public static final int VERSION = 1;
+	public static final int HEADER_BYTES = 8;
+	public static final int RECORD_BYTES = 24;
+	private static final int BUFFER_RECORDS = 4096;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_BYTES);
+	private long records = 0;
+
+	/**
+	 * Creates (or truncates) the given file and writes the header
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public EpisodeWriter(String path) throws IOException {
+		this(path, 0);
+	}
+
+	/**
+	 * Opens the given file, keeping its first keepRecords records (for instance the episodes done before the
+	 * checkpoint a run is resumed from); any records after them are dropped, so episodes that are done again are
+	 * not logged twice. If keepRecords is 0 the file is truncated and a new header is written.
+	 *
+	 * @param path
+	 * @param keepRecords the number of records to keep
+	 * @throws IOException if there are records to keep and the file does not exist, is not an episode log or
+	 *                     holds fewer than keepRecords records
+	 */
+	public EpisodeWriter(String path, long keepRecords) throws IOException {
+		if (keepRecords > 0) {
+			try {
+				channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE, StandardOpenOption.READ);
+			} catch (NoSuchFileException e) {
+				throw new IOException(path + " does not exist, so it has no records to keep");
+			}
+		} else {
+			channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.READ);
+		}
+		try {
+			if (keepRecords > 0) {
+				long end = HEADER_BYTES + keepRecords * RECORD_BYTES;
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+				channel.read(header, 0);
+				if (header.position() < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+					throw new IOException(path + " is not an episode log");
+				}
+				if (channel.size() < end) {
+					throw new IOException(path + " holds " + (channel.size() - HEADER_BYTES) / RECORD_BYTES
+							+ " records, fewer than the " + keepRecords + " to keep");
+				}
+				records = keepRecords;
+				channel.truncate(end);
+				channel.position(end);
+			} else {
+				channel.truncate(0);
+				buffer.putInt(MAGIC);
+				buffer.putInt(VERSION);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Appends the record of one episode
+	 *
+	 * @param episode       the number of the episode
+	 * @param steps         the number of actions performed in the episode
+	 * @param episodeReturn the sum of the rewards gained in the episode
+	 * @param epsilon       the exploration rate used in the episode
+	 * @throws IOException
+	 */
+	public void write(int episode, int steps, double episodeReturn, double epsilon) throws IOException {
+		if (buffer.remaining() < RECORD_BYTES) {
+			drain();
+		}
+		buffer.putInt(episode);
+		buffer.putInt(steps);
+		buffer.putDouble(episodeReturn);
+		buffer.putDouble(epsilon);
+		records++;
+	}
+
+	/**
+	 * @return the number of records in the file (including the buffered ones)
+	 */
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Writes the buffered records to the file
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		drain();
+		channel.force(false);
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package nl.ru.ai.KasperAndDennis.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Collects the counters and timers reported to a MetricsListener: backups and sweeps of planners, steps and
+ * episodes of learners, the residual and duration of the last sweep, an episode length histogram, the current
+ * exploration rate and the allocation per step. Can be registered as an MXBean to watch a run over JMX.
+ *
+ * The methods are synchronized, so one instance can be shared by several workers and read while they run;
+ * they are called once per sweep or episode, not per step.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class Metrics implements MetricsListener, MetricsMXBean {
+
+	private static final int BUCKETS = 32;
+
+	private long sweeps, backups, sweepNanos;
+	private double lastResidual = Double.NaN;
+	private long lastSweepNanos;
+	private long episodes, steps, episodeNanos;
+	private final long[] histogram = new long[BUCKETS];
+	private double epsilon = Double.NaN;
+	private long allocatedBytes, measuredSteps;
+
+	@Override
+	public synchronized void sweepDone(int sweep, double residual, long nanos, long backups) {
+		this.sweeps++;
+		this.backups += backups;
+		this.sweepNanos += nanos;
+		this.lastResidual = residual;
+		this.lastSweepNanos = nanos;
+	}
+
+	@Override
+	public synchronized void episodeDone(int episode, int steps, double episodeReturn, double epsilon, long nanos,
+			long allocatedBytes) {
+		this.episodes++;
+		this.steps += steps;
+		this.episodeNanos += nanos;
+		this.epsilon = epsilon;
+		histogram[(steps <= 1) ? 0 : 31 - Integer.numberOfLeadingZeros(steps)]++;
+		if (allocatedBytes >= 0) {
+			this.allocatedBytes += allocatedBytes;
+			this.measuredSteps += steps;
+		}
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server, so they can be watched over JMX
+	 *
+	 * @param name distinguishes this instance from other registered metrics
+	 */
+	public void register(String name) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName("nl.ru.ai.KasperAndDennis:type=Metrics,name=" + ObjectName.quote(name)));
+		} catch (JMException e) {
+			System.err.println("ERROR:Metrics:register: " + e);
+		}
+	}
+
+	/**
+	 * @return the number of bytes the current thread has allocated so far, or -1 if the JVM cannot tell
+	 */
+	public static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	@Override
+	public synchronized long getSweeps() {
+		return sweeps;
+	}
+
+	@Override
+	public synchronized long getBackups() {
+		return backups;
+	}
+
+	@Override
+	public synchronized double getBackupsPerSecond() {
+		return backups / (sweepNanos / 1E9);
+	}
+
+	@Override
+	public synchronized double getLastResidual() {
+		return lastResidual;
+	}
+
+	@Override
+	public synchronized double getLastSweepMillis() {
+		return lastSweepNanos / 1E6;
+	}
+
+	@Override
+	public synchronized long getEpisodes() {
+		return episodes;
+	}
+
+	@Override
+	public synchronized long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * With several workers this is the throughput per worker, as the episode times of the workers are added up
+	 */
+	@Override
+	public synchronized double getStepsPerSecond() {
+		return steps / (episodeNanos / 1E9);
+	}
+
+	@Override
+	public synchronized double getMeanEpisodeLength() {
+		return (double) steps / episodes;
+	}
+
+	@Override
+	public synchronized long[] getEpisodeLengthHistogram() {
+		return histogram.clone();
+	}
+
+	@Override
+	public synchronized double getEpsilon() {
+		return epsilon;
+	}
+
+	@Override
+	public synchronized double getAllocatedBytesPerStep() {
+		return (double) allocatedBytes / measuredSteps;
+	}
+
+	@Override
+	public synchronized void reset() {
+		sweeps = backups = sweepNanos = lastSweepNanos = 0;
+		lastResidual = Double.NaN;
+		episodes = steps = episodeNanos = 0;
+		Arrays.fill(histogram, 0);
+		epsilon = Double.NaN;
+		allocatedBytes = measuredSteps = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		if (sweeps > 0) {
+			sb.append(String.format("sweeps: %d, backups: %d (%.0f/s), last residual: %g, last sweep: %.3f ms%n",
+					sweeps, backups, getBackupsPerSecond(), lastResidual, getLastSweepMillis()));
+		}
+		if (episodes > 0) {
+			sb.append(String.format("episodes: %d, steps: %d (%.0f/s), mean length: %.1f, epsilon: %g, "
+					+ "allocated: %.2f B/step%n", episodes, steps, getStepsPerSecond(), getMeanEpisodeLength(),
+					epsilon, getAllocatedBytesPerStep()));
+			sb.append("episode lengths:");
+			for (int bucket = 0; bucket < BUCKETS; bucket++) {
+				if (histogram[bucket] > 0) {
+					sb.append(String.format(" [%d,%d): %d", (bucket == 0) ? 0 : 1L << bucket, 1L << (bucket + 1),
+							histogram[bucket]));
+				}
+			}
+			sb.append(String.format("%n"));
+		}
+		return sb.toString();
+	}
+}
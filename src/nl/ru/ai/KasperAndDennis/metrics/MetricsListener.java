@@ -0,0 +1,33 @@
+package nl.ru.ai.KasperAndDennis.metrics;
+
+/**
+ * Gets notified of the progress of a planner (per sweep) or a learner (per episode).
+ * Planners and learners only measure anything while a listener is set, so without one there is no overhead.
+ * A learner with several workers calls the listener from all of them.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public interface MetricsListener {
+
+	/**
+	 * Called after every sweep of a planner
+	 *
+	 * @param sweep    the number of the sweep (counting from 1)
+	 * @param residual the residual of the sweep (the largest change of a value, or the span for ResidualNorm.SPAN)
+	 * @param nanos    the wall time of the sweep
+	 * @param backups  the number of states backed up in the sweep
+	 */
+	void sweepDone(int sweep, double residual, long nanos, long backups);
+
+	/**
+	 * Called after every episode of a learner
+	 *
+	 * @param episode        the number of the episode (counting from 0)
+	 * @param steps          the number of actions performed in the episode
+	 * @param episodeReturn  the sum of the rewards gained in the episode
+	 * @param epsilon        the exploration rate used in the episode
+	 * @param nanos          the wall time of the episode
+	 * @param allocatedBytes the bytes allocated by the learning thread during the episode, or -1 if unknown
+	 */
+	void episodeDone(int episode, int steps, double episodeReturn, double epsilon, long nanos, long allocatedBytes);
+}
@@ -0,0 +1,39 @@
+package nl.ru.ai.KasperAndDennis.metrics;
+
+/**
+ * The counters and timers of Metrics, as shown over JMX (e.g. in JConsole or VisualVM)
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public interface MetricsMXBean {
+
+	long getSweeps();
+
+	long getBackups();
+
+	double getBackupsPerSecond();
+
+	double getLastResidual();
+
+	double getLastSweepMillis();
+
+	long getEpisodes();
+
+	long getSteps();
+
+	double getStepsPerSecond();
+
+	double getMeanEpisodeLength();
+
+	/**
+	 * @return the number of episodes per length: bucket 0 counts lengths 0 and 1, bucket i > 0 counts lengths in
+	 *         [2^i, 2^(i+1))
+	 */
+	long[] getEpisodeLengthHistogram();
+
+	double getEpsilon();
+
+	double getAllocatedBytesPerStep();
+
+	void reset();
+}
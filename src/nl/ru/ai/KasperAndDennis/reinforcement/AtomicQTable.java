@@ -0,0 +1,45 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Q-table that can be updated by several threads at once without locks: the Q-values are stored as the bits
+ * of doubles in an AtomicLongArray, so they can be changed with compare-and-set.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class AtomicQTable extends QTable {
+
+	private final AtomicLongArray values;
+
+	/**
+	 * Creates a table with all Q-values set to 0
+	 *
+	 * @param numStates
+	 * @param numActions
+	 */
+	public AtomicQTable(int numStates, int numActions) {
+		super(numStates, numActions);
+		this.values = new AtomicLongArray(numStates * numActions);
+	}
+
+	@Override
+	public double get(int state, int action) {
+		return Double.longBitsToDouble(values.get(state * numActions + action));
+	}
+
+	@Override
+	public void set(int state, int action, double value) {
+		values.set(state * numActions + action, Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Sets the Q-value to update, but only if it still is expect (compared bit for bit)
+	 *
+	 * @return true if the Q-value was set
+	 */
+	public boolean compareAndSet(int state, int action, double expect, double update) {
+		return values.compareAndSet(state * numActions + action, Double.doubleToRawLongBits(expect),
+				Double.doubleToRawLongBits(update));
+	}
+}
@@ -0,0 +1,260 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import nl.ru.ai.vroon.mdp.SplitMixRandom;
+
+/**
+ * The state of a planner or learner that is needed to continue it later: the number of sweeps or epochs done,
+ * the state values and/or Q-values, the policy, the exploration rate, the initial state of the environment and
+ * the state of the random number generators. Every part except the iteration count is optional.
+ *
+ * A checkpoint is saved in a binary format (MAGIC, VERSION, iterations, epsilon, start state, then each part
+ * preceded by a flag saying if it is present). It is first written to a temporary file which then replaces the old
+ * checkpoint, so a crash while saving never leaves a broken checkpoint behind.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class Checkpoint {
+
+	private static final int MAGIC = 0x434B5054; // "CKPT"
+	private static final int VERSION = 1;
+
+	private final int iterations;
+	private double epsilon = 0;
+	private int startState = -1;
+	private double[] values = null;
+	private QTable qValues = null;
+	private byte[] policy = null;
+	private long[][] randomStates = new long[0][];
+
+	/**
+	 * Creates an empty checkpoint
+	 *
+	 * @param iterations the number of sweeps (planners) or epochs (learners) done so far
+	 */
+	public Checkpoint(int iterations) {
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Saves the checkpoint, replacing the given file
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void save(String path) throws IOException {
+		Path target = Paths.get(path);
+		Path temporary = Paths.get(path + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temporary.toFile())))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(iterations);
+			out.writeDouble(epsilon);
+			out.writeInt(startState);
+			out.writeBoolean(values != null);
+			if (values != null) {
+				out.writeInt(values.length);
+				for (double value : values) {
+					out.writeDouble(value);
+				}
+			}
+			out.writeBoolean(qValues != null);
+			if (qValues != null) {
+				out.writeInt(qValues.getNumStates());
+				out.writeInt(qValues.getNumActions());
+				for (int state = 0; state < qValues.getNumStates(); state++) {
+					for (int action = 0; action < qValues.getNumActions(); action++) {
+						out.writeDouble(qValues.get(state, action));
+					}
+				}
+			}
+			out.writeBoolean(policy != null);
+			if (policy != null) {
+				out.writeInt(policy.length);
+				out.write(policy);
+			}
+			out.writeInt(randomStates.length);
+			for (long[] state : randomStates) {
+				out.writeLong(state[0]);
+				out.writeLong(state[1]);
+			}
+		}
+		Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Loads a checkpoint saved with save(). Q-values are loaded into a DoubleQTable; use copyQValues to put them
+	 * in another kind of table.
+	 *
+	 * @param path
+	 * @return the checkpoint
+	 * @throws IOException if the file cannot be read or is not a checkpoint
+	 */
+	public static Checkpoint load(String path) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(path + " is not a checkpoint");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException(path + " has unsupported checkpoint version " + version);
+			}
+			Checkpoint checkpoint = new Checkpoint(in.readInt());
+			checkpoint.epsilon = in.readDouble();
+			checkpoint.startState = in.readInt();
+			if (in.readBoolean()) {
+				double[] values = new double[in.readInt()];
+				for (int state = 0; state < values.length; state++) {
+					values[state] = in.readDouble();
+				}
+				checkpoint.values = values;
+			}
+			if (in.readBoolean()) {
+				QTable qValues = new DoubleQTable(in.readInt(), in.readInt());
+				for (int state = 0; state < qValues.getNumStates(); state++) {
+					for (int action = 0; action < qValues.getNumActions(); action++) {
+						qValues.set(state, action, in.readDouble());
+					}
+				}
+				checkpoint.qValues = qValues;
+			}
+			if (in.readBoolean()) {
+				byte[] policy = new byte[in.readInt()];
+				in.readFully(policy);
+				checkpoint.policy = policy;
+			}
+			long[][] randomStates = new long[in.readInt()][];
+			for (int i = 0; i < randomStates.length; i++) {
+				randomStates[i] = new long[] { in.readLong(), in.readLong() };
+			}
+			checkpoint.randomStates = randomStates;
+			return checkpoint;
+		}
+	}
+
+	/**
+	 * @return the number of sweeps (planners) or epochs (learners) done when the checkpoint was made
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @return the exploration rate of a learner when the checkpoint was made
+	 */
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	public void setEpsilon(double epsilon) {
+		this.epsilon = epsilon;
+	}
+
+	/**
+	 * @return the initial state of the environment of a learner when the checkpoint was made, or -1
+	 */
+	public int getStartState() {
+		return startState;
+	}
+
+	public void setStartState(int startState) {
+		this.startState = startState;
+	}
+
+	/**
+	 * @return the value of every state, indexed by state id, or null if the checkpoint has none
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * @param values the value of every state, indexed by state id (not copied)
+	 */
+	public void setValues(double[] values) {
+		this.values = values;
+	}
+
+	/**
+	 * @return the Q-values, or null if the checkpoint has none
+	 */
+	public QTable getQValues() {
+		return qValues;
+	}
+
+	/**
+	 * @param qValues the Q-values (not copied; they are read when the checkpoint is saved)
+	 */
+	public void setQValues(QTable qValues) {
+		this.qValues = qValues;
+	}
+
+	/**
+	 * Copies the Q-values of the checkpoint into the given table, which should have the same size
+	 *
+	 * @param target
+	 */
+	public void copyQValues(QTable target) {
+		if (qValues == null || qValues.getNumStates() != target.getNumStates()
+				|| qValues.getNumActions() != target.getNumActions()) {
+			System.err.println("ERROR:Checkpoint:copyQValues: the checkpoint has no Q-values of this size.");
+			return;
+		}
+		for (int state = 0; state < target.getNumStates(); state++) {
+			for (int action = 0; action < target.getNumActions(); action++) {
+				target.set(state, action, qValues.get(state, action));
+			}
+		}
+	}
+
+	/**
+	 * @return the action ordinal of every state, indexed by state id (-1 for a terminal state), or null if the
+	 *         checkpoint has none
+	 */
+	public byte[] getPolicy() {
+		return policy;
+	}
+
+	public void setPolicy(byte[] policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Stores the state of the given generators, in order
+	 *
+	 * @param randoms
+	 */
+	public void setRandoms(SplitMixRandom... randoms) {
+		randomStates = new long[randoms.length][];
+		for (int i = 0; i < randoms.length; i++) {
+			randomStates[i] = randoms[i].getState();
+		}
+	}
+
+	/**
+	 * @return the number of stored generator states
+	 */
+	public int getNumRandoms() {
+		return randomStates.length;
+	}
+
+	/**
+	 * @param index
+	 * @return a generator that continues where the stored generator left off
+	 */
+	public SplitMixRandom getRandom(int index) {
+		return SplitMixRandom.fromState(randomStates[index]);
+	}
+}
@@ -0,0 +1,230 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import nl.ru.ai.vroon.mdp.Action;
+import nl.ru.ai.vroon.mdp.Field;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+import nl.ru.ai.vroon.mdp.SuccessorIndex;
+
+/**
+ * Immutable transition model compiled from a MarkovDecisionProblem in one pass.
+ *
+ * The transitions are stored as a compressed sparse row table: row (state * NUM_ACTIONS + action)
+ * holds the successor state ids and their probabilities in [rowStart[row], rowStart[row + 1]),
+ * and the expected immediate reward of that state-action pair in expectedRewards[row], computed from the
+ * reward of each successor state (see MarkovDecisionProblem.getStateReward). Terminal
+ * states have empty rows and no reward, so a backup of a terminal state always yields 0.
+ *
+ * The outcomes of an action are the same as in the original ValueIteration: the action itself,
+ * the two sidesteps and the backstep, where a blocked move keeps the agent in place.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public final class CompiledMDP {
+
+	public static final int NUM_ACTIONS = Action.values().length;
+	private static final Action[] ACTIONS = Action.values();
+
+	final int numStates;
+	final int width, height;
+	final int[] rowStart;
+	final int[] successors;
+	final double[] probabilities;
+	final double[] expectedRewards;
+	final boolean[] terminal;
+
+	private CompiledMDP(int width, int height, int[] rowStart, int[] successors, double[] probabilities,
+			double[] expectedRewards, boolean[] terminal) {
+		this.width = width;
+		this.height = height;
+		this.numStates = terminal.length;
+		this.rowStart = rowStart;
+		this.successors = successors;
+		this.probabilities = probabilities;
+		this.expectedRewards = expectedRewards;
+		this.terminal = terminal;
+	}
+
+	/**
+	 * Compiles the transitions and rewards of the given MDP.
+	 *
+	 * @param mdp the MDP, whose landscape, rewards and probabilities should not change afterwards
+	 * @return the compiled model
+	 */
+	public static CompiledMDP compile(MarkovDecisionProblem mdp) {
+		int numStates = mdp.getNumStates();
+		double[] outcomeProbabilities = getOutcomeProbabilities(mdp);
+		boolean[] terminal = new boolean[numStates];
+		int[] rowStart = new int[numStates * NUM_ACTIONS + 1];
+		int[] outcomeStates = new int[NUM_ACTIONS];
+		double[] outcomeWeights = new double[NUM_ACTIONS];
+
+		// First pass: count the (merged) successors of every state-action pair
+		for (int state = 0; state < numStates; state++) {
+			terminal[state] = isTerminal(mdp.getField(state));
+			for (int action = 0; action < NUM_ACTIONS; action++) {
+				int row = state * NUM_ACTIONS + action;
+				int count = terminal[state] ? 0
+						: outcomes(mdp, state, ACTIONS[action], outcomeProbabilities, outcomeStates, outcomeWeights);
+				rowStart[row + 1] = rowStart[row] + count;
+			}
+		}
+
+		// Second pass: fill the table
+		int entries = rowStart[numStates * NUM_ACTIONS];
+		int[] successors = new int[entries];
+		double[] probabilities = new double[entries];
+		double[] expectedRewards = new double[numStates * NUM_ACTIONS];
+		for (int state = 0; state < numStates; state++) {
+			if (terminal[state]) {
+				continue;
+			}
+			for (int action = 0; action < NUM_ACTIONS; action++) {
+				int row = state * NUM_ACTIONS + action;
+				int count = outcomes(mdp, state, ACTIONS[action], outcomeProbabilities, outcomeStates, outcomeWeights);
+				double reward = 0;
+				for (int i = 0; i < count; i++) {
+					successors[rowStart[row] + i] = outcomeStates[i];
+					probabilities[rowStart[row] + i] = outcomeWeights[i];
+					reward += outcomeWeights[i] * mdp.getStateReward(outcomeStates[i]);
+				}
+				expectedRewards[row] = reward;
+			}
+		}
+		return new CompiledMDP(mdp.getWidth(), mdp.getHeight(), rowStart, successors, probabilities,
+				expectedRewards, terminal);
+	}
+
+	/**
+	 * Collects the distinct successors of a state-action pair with a non-zero probability.
+	 *
+	 * @return the number of successors written to states and weights
+	 */
+	static int outcomes(MarkovDecisionProblem mdp, int state, Action action, double[] outcomeProbabilities,
+			int[] states, double[] weights) {
+		Action[] actions = { action, Action.nextAction(action), Action.previousAction(action),
+				Action.backAction(action) };
+		SuccessorIndex successors = mdp.getSuccessorIndex();
+		int count = 0;
+		for (int i = 0; i < actions.length; i++) {
+			if (outcomeProbabilities[i] == 0) {
+				continue;
+			}
+			int next = successors.get(state, actions[i]);
+			int j = 0;
+			while (j < count && states[j] != next) {
+				j++;
+			}
+			if (j == count) {
+				states[count] = next;
+				weights[count] = 0;
+				count++;
+			}
+			weights[j] += outcomeProbabilities[i];
+		}
+		return count;
+	}
+
+	/**
+	 * Note: pNoStep is not used, because the agent always moves!
+	 *
+	 * @return the probabilities of the action, its next and previous sidestep and its backstep
+	 */
+	static double[] getOutcomeProbabilities(MarkovDecisionProblem mdp) {
+		double[] transition = mdp.getTransitionProbs();
+		return mdp.isDeterministic() ? new double[] { 1, 0, 0, 0 }
+				: new double[] { transition[0], transition[1] / 2, transition[1] / 2, transition[2] };
+	}
+
+	static boolean isTerminal(Field field) {
+		return field == Field.REWARD || field == Field.NEGREWARD;
+	}
+
+	/**
+	 * Computes the Q-value of a state-action pair.
+	 *
+	 * @param state  state id
+	 * @param action action ordinal
+	 * @param values value of every state
+	 * @param gamma  discount factor
+	 * @return Q-value
+	 */
+	public double qValue(int state, int action, ValueTable values, double gamma) {
+		int row = state * NUM_ACTIONS + action;
+		double expected = 0;
+		for (int i = rowStart[row], end = rowStart[row + 1]; i < end; i++) {
+			expected += probabilities[i] * values.get(successors[i]);
+		}
+		return expectedRewards[row] + gamma * expected;
+	}
+
+	/**
+	 * Finds the maximum Q-value over all actions (the Bellman backup of a state).
+	 *
+	 * @param state  state id
+	 * @param values value of every state
+	 * @param gamma  discount factor
+	 * @return maximum Q-value, or 0 for a terminal state
+	 */
+	public double maxQ(int state, ValueTable values, double gamma) {
+		if (terminal[state]) {
+			return 0;
+		}
+		double maxValue = Double.NEGATIVE_INFINITY;
+		for (int action = 0; action < NUM_ACTIONS; action++) {
+			double value = qValue(state, action, values, gamma);
+			maxValue = (value > maxValue) ? value : maxValue;
+		}
+		return maxValue;
+	}
+
+	/**
+	 * Finds the action with the maximum Q-value.
+	 *
+	 * @return action ordinal, or -1 for a terminal state
+	 */
+	public int greedyAction(int state, ValueTable values, double gamma) {
+		if (terminal[state]) {
+			return -1;
+		}
+		double maxValue = Double.NEGATIVE_INFINITY;
+		int bestAction = -1;
+		for (int action = 0; action < NUM_ACTIONS; action++) {
+			double value = qValue(state, action, values, gamma);
+			if (value > maxValue) {
+				maxValue = value;
+				bestAction = action;
+			}
+		}
+		return bestAction;
+	}
+
+	public int getNumStates() {
+		return numStates;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public boolean isTerminal(int state) {
+		return terminal[state];
+	}
+
+	/**
+	 * @return the number of stored (state, action, successor) transitions
+	 */
+	public int getNumTransitions() {
+		return successors.length;
+	}
+
+	/**
+	 * @return the expected immediate reward of performing the action in the state
+	 */
+	public double getExpectedReward(int state, int action) {
+		return expectedRewards[state * NUM_ACTIONS + action];
+	}
+}
@@ -0,0 +1,206 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import nl.ru.ai.vroon.mdp.Action;
+import nl.ru.ai.vroon.mdp.Environment;
+import nl.ru.ai.vroon.mdp.Field;
+
+/**
+ * Immutable table of the action to take in every state, to serve a trained policy without the planner or
+ * learner that produced it. Use PolicyExecutor to run it.
+ *
+ * The table is either one byte per state, holding the action ordinal or NONE for a state without an action
+ * (an end state), or packed in 2 bits per state (32 states per long). A packed table has no room for NONE, so
+ * it returns UP (0) for those states; they are end states, so no agent asks for their action.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public final class CompiledPolicy {
+
+	public static final int NONE = -1;
+	private static final int MAGIC = 0x504C4359; // "PLCY"
+	private static final Action[] ACTIONS = Action.values();
+
+	private final int width, height;
+	// Exactly one of these is used:
+	private final byte[] actions;
+	private final long[] packedActions;
+
+	private CompiledPolicy(int width, int height, byte[] actions, long[] packedActions) {
+		this.width = width;
+		this.height = height;
+		this.actions = actions;
+		this.packedActions = packedActions;
+	}
+
+	/**
+	 * Compiles a policy from the action ordinal of every state
+	 *
+	 * @param actions the action ordinal of every state id, or NONE (copied)
+	 * @param width
+	 * @param height
+	 * @param packed  if true the actions are stored in 2 bits per state
+	 * @return the policy
+	 */
+	public static CompiledPolicy fromActions(byte[] actions, int width, int height, boolean packed) {
+		if (!packed) {
+			return new CompiledPolicy(width, height, actions.clone(), null);
+		}
+		long[] packedActions = new long[(actions.length + 31) >>> 5];
+		for (int state = 0; state < actions.length; state++) {
+			long action = (actions[state] < 0) ? 0 : actions[state];
+			packedActions[state >>> 5] |= action << ((state & 31) << 1);
+		}
+		return new CompiledPolicy(width, height, null, packedActions);
+	}
+
+	/**
+	 * Compiles a policy indexed by x and y coordinate, like the POLICY of the planners
+	 *
+	 * @param policy the action of every position, or null
+	 * @param packed if true the actions are stored in 2 bits per state
+	 * @return the policy
+	 */
+	public static CompiledPolicy fromPolicy(Action[][] policy, boolean packed) {
+		int width = policy.length;
+		int height = policy[0].length;
+		byte[] actions = new byte[width * height];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				actions[x + y * width] = (byte) ((policy[x][y] == null) ? NONE : policy[x][y].ordinal());
+			}
+		}
+		return fromActions(actions, width, height, packed);
+	}
+
+	/**
+	 * Compiles the greedy policy of a Q-table
+	 *
+	 * @param qValues
+	 * @param environment the environment the Q-values were learned in, to find the end states
+	 * @param packed      if true the actions are stored in 2 bits per state
+	 * @return the policy
+	 */
+	public static CompiledPolicy fromQTable(QTable qValues, Environment environment, boolean packed) {
+		byte[] actions = new byte[qValues.getNumStates()];
+		for (int state = 0; state < actions.length; state++) {
+			Field field = environment.getField(state);
+			boolean terminal = field == Field.REWARD || field == Field.NEGREWARD;
+			actions[state] = (byte) (terminal ? NONE : qValues.getBestAction(state));
+		}
+		return fromActions(actions, environment.getWidth(), environment.getHeight(), packed);
+	}
+
+	/**
+	 * @param state
+	 * @return the action ordinal of the state, or NONE (only if the policy is not packed)
+	 */
+	public int getAction(int state) {
+		if (actions != null) {
+			return actions[state];
+		}
+		return (int) (packedActions[state >>> 5] >>> ((state & 31) << 1)) & 3;
+	}
+
+	/**
+	 * @param state
+	 * @return the action of the state, or null for NONE
+	 */
+	public Action getActionOf(int state) {
+		int action = getAction(state);
+		return (action < 0) ? null : ACTIONS[action];
+	}
+
+	/**
+	 * Looks up the actions of many states at once
+	 *
+	 * @param states  state ids
+	 * @param from    the first index in states (and in result) to look up
+	 * @param count   the number of states to look up
+	 * @param result  receives the action ordinal of each state
+	 */
+	public void getActions(int[] states, int from, int count, byte[] result) {
+		if (actions != null) {
+			for (int i = from, end = from + count; i < end; i++) {
+				result[i] = actions[states[i]];
+			}
+		} else {
+			for (int i = from, end = from + count; i < end; i++) {
+				int state = states[i];
+				result[i] = (byte) ((packedActions[state >>> 5] >>> ((state & 31) << 1)) & 3);
+			}
+		}
+	}
+
+	public int getNumStates() {
+		return width * height;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public boolean isPacked() {
+		return packedActions != null;
+	}
+
+	/**
+	 * Saves the policy (MAGIC, width, height, packed, then the table)
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public void save(String path) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(width);
+			out.writeInt(height);
+			out.writeBoolean(isPacked());
+			if (actions != null) {
+				out.write(actions);
+			} else {
+				for (long word : packedActions) {
+					out.writeLong(word);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads a policy saved with save()
+	 *
+	 * @param path
+	 * @return the policy
+	 * @throws IOException if the file cannot be read or is not a policy
+	 */
+	public static CompiledPolicy load(String path) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(path + " is not a policy");
+			}
+			int width = in.readInt();
+			int height = in.readInt();
+			if (!in.readBoolean()) {
+				byte[] actions = new byte[width * height];
+				in.readFully(actions);
+				return new CompiledPolicy(width, height, actions, null);
+			}
+			long[] packedActions = new long[(width * height + 31) >>> 5];
+			for (int i = 0; i < packedActions.length; i++) {
+				packedActions[i] = in.readLong();
+			}
+			return new CompiledPolicy(width, height, null, packedActions);
+		}
+	}
+}
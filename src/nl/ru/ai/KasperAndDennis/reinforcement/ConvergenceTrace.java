@@ -0,0 +1,133 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import java.util.Arrays;
+
+/**
+ * Records the residuals of every sweep of a planner and why it stopped.
+ * 
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class ConvergenceTrace {
+
+	/**
+	 * Enumerates the reasons a planner can stop sweeping
+	 */
+	public enum StopReason {
+		CONVERGED,      // i.e. the residual fell below the threshold
+		MAX_ITERATIONS, // i.e. the maximum number of sweeps was reached
+		TIME_BUDGET     // i.e. the wall-clock budget ran out
+	}
+
+	private final double threshold;
+	private final ResidualNorm norm;
+	private double[] maxResiduals = new double[64];
+	private double[] spans = new double[64];
+	private long[] elapsedNanos = new long[64];
+	private int sweeps = 0;
+	private StopReason stopReason = null;
+
+	/**
+	 * @param threshold the residual below which the planner considers itself converged
+	 * @param norm      the norm the threshold applies to
+	 */
+	public ConvergenceTrace(double threshold, ResidualNorm norm) {
+		this.threshold = threshold;
+		this.norm = norm;
+	}
+
+	/**
+	 * Records one sweep.
+	 * 
+	 * @param minDiff      the smallest (signed) change of a state value
+	 * @param maxDiff      the largest (signed) change of a state value
+	 * @param elapsedNanos the wall time since the planner started
+	 * @return true if the residual in the traced norm is below the threshold
+	 */
+	public boolean addSweep(double minDiff, double maxDiff, long elapsedNanos) {
+		if (sweeps == maxResiduals.length) {
+			maxResiduals = Arrays.copyOf(maxResiduals, sweeps * 2);
+			spans = Arrays.copyOf(spans, sweeps * 2);
+			this.elapsedNanos = Arrays.copyOf(this.elapsedNanos, sweeps * 2);
+		}
+		maxResiduals[sweeps] = Math.max(Math.abs(minDiff), Math.abs(maxDiff));
+		spans[sweeps] = maxDiff - minDiff;
+		this.elapsedNanos[sweeps] = elapsedNanos;
+		sweeps++;
+		return getResidual(sweeps - 1) < threshold;
+	}
+
+	/**
+	 * Sets why the planner stopped
+	 * 
+	 * @param stopReason
+	 */
+	public void stop(StopReason stopReason) {
+		this.stopReason = stopReason;
+	}
+
+	/**
+	 * @return the residual of the given sweep in the traced norm
+	 */
+	public double getResidual(int sweep) {
+		return (norm == ResidualNorm.SPAN) ? spans[sweep] : maxResiduals[sweep];
+	}
+
+	/**
+	 * @return the largest absolute change of a state value in the given sweep
+	 */
+	public double getMaxResidual(int sweep) {
+		return maxResiduals[sweep];
+	}
+
+	/**
+	 * @return the span of the changes of the state values in the given sweep
+	 */
+	public double getSpan(int sweep) {
+		return spans[sweep];
+	}
+
+	/**
+	 * @return the wall time from the start of the planner to the end of the given sweep, in nanoseconds
+	 */
+	public long getElapsedNanos(int sweep) {
+		return elapsedNanos[sweep];
+	}
+
+	/**
+	 * @return the number of recorded sweeps
+	 */
+	public int getSweeps() {
+		return sweeps;
+	}
+
+	/**
+	 * @return why the planner stopped, or null if it has not stopped yet
+	 */
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	public boolean hasConverged() {
+		return stopReason == StopReason.CONVERGED;
+	}
+
+	public double getThreshold() {
+		return threshold;
+	}
+
+	public ResidualNorm getNorm() {
+		return norm;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-8s | %-22s | %-22s | %s%n", "sweep", "max residual", "span", "time (ms)"));
+		for (int sweep = 0; sweep < sweeps; sweep++) {
+			sb.append(String.format("%-8d | %-22s | %-22s | %.3f%n", sweep + 1, maxResiduals[sweep], spans[sweep],
+					elapsedNanos[sweep] / 1E6));
+		}
+		sb.append("stopped: " + stopReason + " (threshold " + threshold + " on the " + norm + " norm)");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,58 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+/**
+ * Q-table stored in one flat double array, indexed by state * numActions + action.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class DoubleQTable extends QTable {
+
+	protected final double[] values;
+
+	/**
+	 * Creates a table with all Q-values set to 0
+	 *
+	 * @param numStates
+	 * @param numActions
+	 */
+	public DoubleQTable(int numStates, int numActions) {
+		super(numStates, numActions);
+		this.values = new double[numStates * numActions];
+	}
+
+	@Override
+	public double get(int state, int action) {
+		return values[state * numActions + action];
+	}
+
+	@Override
+	public void set(int state, int action, double value) {
+		values[state * numActions + action] = value;
+	}
+
+	@Override
+	public int getBestAction(int state) {
+		int offset = state * numActions;
+		int bestAction = 0;
+		double maxValue = values[offset];
+		for (int action = 1; action < numActions; action++) {
+			double value = values[offset + action];
+			if (value > maxValue) {
+				maxValue = value;
+				bestAction = action;
+			}
+		}
+		return bestAction;
+	}
+
+	@Override
+	public double getMaxValue(int state) {
+		int offset = state * numActions;
+		double maxValue = values[offset];
+		for (int action = 1; action < numActions; action++) {
+			double value = values[offset + action];
+			maxValue = (value > maxValue) ? value : maxValue;
+		}
+		return maxValue;
+	}
+}
@@ -0,0 +1,45 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+/**
+ * Value table stored in a double array on the heap, indexed by state id.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class DoubleValueTable extends ValueTable {
+
+	protected final double[] values;
+
+	/**
+	 * Creates a table with all values set to 0
+	 *
+	 * @param numStates
+	 */
+	public DoubleValueTable(int numStates) {
+		super(numStates);
+		this.values = new double[numStates];
+	}
+
+	@Override
+	public double get(int state) {
+		return values[state];
+	}
+
+	@Override
+	public void set(int state, double value) {
+		values[state] = value;
+	}
+
+	@Override
+	public void copyFrom(double[] source) {
+		if (source.length != numStates) {
+			System.err.println("ERROR:DoubleValueTable:copyFrom: expected " + numStates + " values.");
+			return;
+		}
+		System.arraycopy(source, 0, values, 0, numStates);
+	}
+
+	@Override
+	public double[] toArray() {
+		return values.clone();
+	}
+}
@@ -0,0 +1,59 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+/**
+ * Q-table stored in one flat float array, indexed by state * numActions + action.
+ * Uses half the memory of a DoubleQTable, at the cost of precision.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class FloatQTable extends QTable {
+
+	protected final float[] values;
+
+	/**
+	 * Creates a table with all Q-values set to 0
+	 *
+	 * @param numStates
+	 * @param numActions
+	 */
+	public FloatQTable(int numStates, int numActions) {
+		super(numStates, numActions);
+		this.values = new float[numStates * numActions];
+	}
+
+	@Override
+	public double get(int state, int action) {
+		return values[state * numActions + action];
+	}
+
+	@Override
+	public void set(int state, int action, double value) {
+		values[state * numActions + action] = (float) value;
+	}
+
+	@Override
+	public int getBestAction(int state) {
+		int offset = state * numActions;
+		int bestAction = 0;
+		float maxValue = values[offset];
+		for (int action = 1; action < numActions; action++) {
+			float value = values[offset + action];
+			if (value > maxValue) {
+				maxValue = value;
+				bestAction = action;
+			}
+		}
+		return bestAction;
+	}
+
+	@Override
+	public double getMaxValue(int state) {
+		int offset = state * numActions;
+		float maxValue = values[offset];
+		for (int action = 1; action < numActions; action++) {
+			float value = values[offset + action];
+			maxValue = (value > maxValue) ? value : maxValue;
+		}
+		return maxValue;
+	}
+}
@@ -0,0 +1,364 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import nl.ru.ai.vroon.mdp.Action;
+import nl.ru.ai.vroon.mdp.Field;
+import nl.ru.ai.vroon.mdp.LandscapeListener;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+
+/**
+ * Planner that keeps its values and greedy policy up to date while fields of the MDP change.
+ *
+ * It listens to the landscape of the MDP: a changed field only changes the transitions of that state and of its
+ * neighbours, so only those rows of its model are recompiled and only those states are queued with their exact
+ * Bellman residual. replan() then backs up the state with the highest residual first and requeues the
+ * predecessors (the state itself and its neighbours) whose residual grew, until no residual is above the
+ * tolerance. The work done therefore depends on how far the change spreads, not on the size of the grid.
+ * The first call to replan() solves the whole MDP the same way.
+ *
+ * The rewards and transition probabilities of the MDP should not change while it is planned for.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class IncrementalPlanner implements LandscapeListener {
+
+	private static final Action[] ACTIONS = Action.values();
+	private static final double DELTA = 1E-10;
+	private static final int NUM_ACTIONS = CompiledMDP.NUM_ACTIONS;
+	// A state-action pair has at most one outcome per Action
+	private static final int MAX_OUTCOMES = NUM_ACTIONS;
+	private final int WIDTH, HEIGHT, NUM_STATES;
+	private final MarkovDecisionProblem MDP;
+	private final double GAMMA;
+	protected final Action[][] POLICY;
+	private final double[] outcomeProbabilities;
+	// The model, with MAX_OUTCOMES slots per row (state * NUM_ACTIONS + action) so a row can be recompiled in place
+	private final int[] successors;
+	private final double[] probabilities;
+	private final byte[] counts;
+	private final double[] expectedRewards;
+	private final boolean[] terminal;
+	private final ValueTable values;
+	private final int[] policy;
+	private final ResidualQueue queue;
+	private final int[] outcomeStates = new int[MAX_OUTCOMES];
+	private final double[] outcomeWeights = new double[MAX_OUTCOMES];
+	private double tolerance = DELTA;
+	private long backups = 0;
+	private long lastBackups = 0;
+	private long elapsedNanos = 0;
+	private long lastNanos = 0;
+
+	public IncrementalPlanner(MarkovDecisionProblem mdp, double gamma) {
+		this(mdp, gamma, true);
+	}
+
+	/**
+	 * Sets up the planner for the given MDP and starts listening to its landscape.
+	 *
+	 * @param mdp      the MDP to plan for
+	 * @param gamma    discount factor, should be below 1
+	 * @param solveNow if false nothing is computed yet, so the settings can be changed before calling solve()
+	 */
+	public IncrementalPlanner(MarkovDecisionProblem mdp, double gamma, boolean solveNow) {
+		this(mdp, gamma, new DoubleValueTable(mdp.getNumStates()), solveNow);
+	}
+
+	/**
+	 * Sets up the planner for the given MDP that keeps its values in the given table, for instance a
+	 * MappedValueTable, and starts listening to its landscape.
+	 *
+	 * @param mdp      the MDP to plan for
+	 * @param gamma    discount factor, should be below 1
+	 * @param values   the table to start from and to back the values up in
+	 * @param solveNow if false nothing is computed yet, so the settings can be changed before calling solve()
+	 * @throws IllegalArgumentException if the table does not have a value for every state of the MDP
+	 */
+	public IncrementalPlanner(MarkovDecisionProblem mdp, double gamma, ValueTable values, boolean solveNow) {
+		if (values.getNumStates() != mdp.getNumStates()) {
+			throw new IllegalArgumentException("expected a table of " + mdp.getNumStates() + " values");
+		}
+		this.GAMMA = gamma;
+		this.MDP = mdp;
+		this.WIDTH = mdp.getWidth();
+		this.HEIGHT = mdp.getHeight();
+		this.NUM_STATES = mdp.getNumStates();
+		this.POLICY = new Action[WIDTH][HEIGHT];
+		this.outcomeProbabilities = CompiledMDP.getOutcomeProbabilities(mdp);
+		this.successors = new int[NUM_STATES * NUM_ACTIONS * MAX_OUTCOMES];
+		this.probabilities = new double[NUM_STATES * NUM_ACTIONS * MAX_OUTCOMES];
+		this.counts = new byte[NUM_STATES * NUM_ACTIONS];
+		this.expectedRewards = new double[NUM_STATES * NUM_ACTIONS];
+		this.terminal = new boolean[NUM_STATES];
+		this.values = values;
+		this.policy = new int[NUM_STATES];
+		this.queue = new ResidualQueue(NUM_STATES);
+		for (int state = 0; state < NUM_STATES; state++) {
+			compileState(state);
+		}
+		for (int state = 0; state < NUM_STATES; state++) {
+			enqueue(state);
+		}
+		mdp.addLandscapeListener(this);
+		if (solveNow) {
+			solve();
+		}
+	}
+
+	/**
+	 * Brings the plan up to date and prints the values and the resulting policy
+	 */
+	public void solve() {
+		replan();
+		System.out.println("Backups:" + lastBackups + " (a full sweep is " + NUM_STATES + ")");
+		System.out.println("Time: " + getLastReplanMillis() + " ms");
+		showValues();
+		getPolicy();
+		showPolicy();
+	}
+
+	/**
+	 * Marks the changed state and its neighbours dirty: recompiles their transitions and queues them with their
+	 * new residual. The plan itself is repaired by the next call to replan().
+	 */
+	@Override
+	public void fieldChanged(int state, Field oldField, Field newField) {
+		int x = MDP.getStateX(state), y = MDP.getStateY(state);
+		compileState(state);
+		for (Action action : ACTIONS) {
+			int neighbour = neighbour(x + action.GetDX(), y + action.GetDY());
+			if (neighbour >= 0) {
+				compileState(neighbour);
+			}
+		}
+		enqueueNeighbourhood(state);
+	}
+
+	/**
+	 * Repairs the values and the policy: backs up the state with the highest residual until no residual is above
+	 * the tolerance.
+	 */
+	public void replan() {
+		long start = System.nanoTime();
+		long before = backups;
+		while (!queue.isEmpty() && queue.peekPriority() >= tolerance) {
+			backup(queue.poll());
+		}
+		lastBackups = backups - before;
+		lastNanos = System.nanoTime() - start;
+		elapsedNanos += lastNanos;
+	}
+
+	/**
+	 * @return true if a change of the landscape has not been repaired by replan() yet
+	 */
+	public boolean isDirty() {
+		return !queue.isEmpty() && queue.peekPriority() >= tolerance;
+	}
+
+	/**
+	 * Returns the greedy action of the given state, repairing the plan first if the landscape has changed
+	 *
+	 * @param state
+	 * @return the action, or null for a terminal state
+	 */
+	public Action getAction(int state) {
+		if (isDirty()) {
+			replan();
+		}
+		return terminal[state] ? null : ACTIONS[policy[state]];
+	}
+
+	/**
+	 * Stops listening to the landscape of the MDP
+	 */
+	public void detach() {
+		MDP.removeLandscapeListener(this);
+	}
+
+	private void backup(int state) {
+		backups++;
+		double value = evaluate(state);
+		double change = Math.abs(value - values.get(state));
+		values.set(state, value);
+		if (change != 0) {
+			enqueueNeighbourhood(state);
+		}
+	}
+
+	/**
+	 * Queues the state and its neighbours (the only states that can move to it) with their exact residual
+	 */
+	private void enqueueNeighbourhood(int state) {
+		int x = MDP.getStateX(state), y = MDP.getStateY(state);
+		enqueue(state);
+		for (Action action : ACTIONS) {
+			int neighbour = neighbour(x + action.GetDX(), y + action.GetDY());
+			if (neighbour >= 0) {
+				enqueue(neighbour);
+			}
+		}
+	}
+
+	/**
+	 * Updates the greedy action of the state and queues it if its residual is not below the tolerance
+	 */
+	private void enqueue(int state) {
+		double residual = Math.abs(evaluate(state) - values.get(state));
+		if (residual >= tolerance) {
+			queue.update(state, residual);
+		}
+	}
+
+	/**
+	 * Computes the maximum Q-value of the state and makes its policy greedy
+	 *
+	 * @return the maximum Q-value, or 0 for a terminal state
+	 */
+	private double evaluate(int state) {
+		if (terminal[state]) {
+			return 0;
+		}
+		double maxValue = Double.NEGATIVE_INFINITY;
+		int bestAction = 0;
+		for (int action = 0; action < NUM_ACTIONS; action++) {
+			int row = state * NUM_ACTIONS + action;
+			double expected = 0;
+			for (int i = row * MAX_OUTCOMES, end = i + counts[row]; i < end; i++) {
+				expected += probabilities[i] * values.get(successors[i]);
+			}
+			double value = expectedRewards[row] + GAMMA * expected;
+			if (value > maxValue) {
+				maxValue = value;
+				bestAction = action;
+			}
+		}
+		policy[state] = bestAction;
+		return maxValue;
+	}
+
+	/**
+	 * (Re)compiles the transitions and expected rewards of every action of the state from the landscape
+	 */
+	private void compileState(int state) {
+		terminal[state] = CompiledMDP.isTerminal(MDP.getField(state));
+		for (int action = 0; action < NUM_ACTIONS; action++) {
+			int row = state * NUM_ACTIONS + action;
+			int count = terminal[state] ? 0
+					: CompiledMDP.outcomes(MDP, state, ACTIONS[action], outcomeProbabilities, outcomeStates,
+							outcomeWeights);
+			double reward = 0;
+			for (int i = 0; i < count; i++) {
+				successors[row * MAX_OUTCOMES + i] = outcomeStates[i];
+				probabilities[row * MAX_OUTCOMES + i] = outcomeWeights[i];
+				reward += outcomeWeights[i] * MDP.getStateReward(outcomeStates[i]);
+			}
+			counts[row] = (byte) count;
+			expectedRewards[row] = reward;
+		}
+	}
+
+	/**
+	 * @return the state id of the given position, or -1 if it is outside the grid
+	 */
+	private int neighbour(int x, int y) {
+		return (x < 0 || x >= WIDTH || y < 0 || y >= HEIGHT) ? -1 : MDP.getStateId(x, y);
+	}
+
+	/**
+	 * Get the greedy action for every state
+	 */
+	public void getPolicy() {
+		for (int state = 0; state < NUM_STATES; state++) {
+			POLICY[MDP.getStateX(state)][MDP.getStateY(state)] = terminal[state] ? null : ACTIONS[policy[state]];
+		}
+	}
+
+	/**
+	 * Sets the residual below which a state is not backed up anymore (1E-10 by default)
+	 *
+	 * @param tolerance
+	 */
+	public void setTolerance(double tolerance) {
+		if (tolerance > 0) {
+			this.tolerance = tolerance;
+		} else {
+			System.err.println("ERROR:IncrementalPlanner:setTolerance: the tolerance should be positive.");
+		}
+	}
+
+	/**
+	 * @return the total number of backups performed
+	 */
+	public long getBackups() {
+		return backups;
+	}
+
+	/**
+	 * @return the number of backups the last call to replan() needed
+	 */
+	public long getLastReplanBackups() {
+		return lastBackups;
+	}
+
+	/**
+	 * @return the wall time of the last call to replan() in milliseconds
+	 */
+	public double getLastReplanMillis() {
+		return lastNanos / 1E6;
+	}
+
+	/**
+	 * @return the wall time spent in replan() in milliseconds
+	 */
+	public double getElapsedMillis() {
+		return elapsedNanos / 1E6;
+	}
+
+	/**
+	 * @return a copy of the current value of every state, indexed by state id
+	 */
+	public double[] getValues() {
+		return values.toArray();
+	}
+
+	/**
+	 * @return the current value of the state with the given x and y coordinate
+	 */
+	public double getValue(int x, int y) {
+		return values.get(MDP.getStateId(x, y));
+	}
+
+	/**
+	 * print the values
+	 *
+	 */
+	public void showValues() {
+		StringBuilder string = new StringBuilder();
+		for (int row = HEIGHT - 1; row >= 0; row--) {
+			string.append("| ");
+			for (int column = 0; column < WIDTH; column++) {
+				string.append(String.format("%-20s", values.get(MDP.getStateId(column, row))));
+				string.append(" | ");
+			}
+			string.append("\n");
+		}
+		System.out.println(string.toString());
+	}
+
+	/**
+	 * print the policy
+	 *
+	 */
+	public void showPolicy() {
+		StringBuilder string = new StringBuilder();
+		for (int row = HEIGHT - 1; row >= 0; row--) {
+			string.append("| ");
+			for (int column = 0; column < WIDTH; column++) {
+				string.append(String.format("%-5s", POLICY[column][row]));
+				string.append(" | ");
+			}
+			string.append("\n");
+		}
+		System.out.println(string.toString());
+	}
+}
@@ -0,0 +1,114 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of doubles mapped into memory, after a small header. A single MappedByteBuffer can hold at most 2 GiB,
+ * so the doubles are mapped in chunks of 2^CHUNK_SHIFT. The data lives outside the Java heap and is written back
+ * to the file by the operating system (or by flush()).
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+final class MappedDoubles {
+
+	static final int HEADER_BYTES = 16;
+	private static final int CHUNK_SHIFT = 27;
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	private final MappedByteBuffer header;
+	private final MappedByteBuffer[] chunks;
+	private final long length;
+
+	private MappedDoubles(FileChannel channel, long length) throws IOException {
+		this.length = length;
+		this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+		int numChunks = (int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT);
+		this.chunks = new MappedByteBuffer[numChunks];
+		for (int chunk = 0; chunk < numChunks; chunk++) {
+			long first = (long) chunk << CHUNK_SHIFT;
+			long size = Math.min(CHUNK_MASK + 1, length - first) * 8;
+			chunks[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + first * 8, size);
+		}
+	}
+
+	/**
+	 * Creates (or overwrites) a file of the given number of doubles, all 0, with the given header
+	 *
+	 * @param path
+	 * @param magic  identifies the kind of table
+	 * @param rows   first dimension, stored in the header
+	 * @param columns second dimension, stored in the header
+	 * @return the mapped doubles
+	 * @throws IOException
+	 */
+	static MappedDoubles create(String path, int magic, int rows, int columns) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long length = (long) rows * columns;
+			// Growing the file leaves the new bytes (and so the doubles) at 0
+			channel.write(ByteBuffer.wrap(new byte[1]), HEADER_BYTES + length * 8 - 1);
+			MappedDoubles doubles = new MappedDoubles(channel, length);
+			doubles.header.putInt(0, magic);
+			doubles.header.putInt(4, rows);
+			doubles.header.putInt(8, columns);
+			return doubles;
+		}
+	}
+
+	/**
+	 * Maps an existing file created with the same magic number
+	 *
+	 * @throws IOException if the file cannot be read or is not of the expected kind
+	 */
+	static MappedDoubles open(String path, int magic) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+			}
+			if (header.hasRemaining() || header.getInt(0) != magic) {
+				throw new IOException(path + " is not a table of the expected kind");
+			}
+			long length = (long) header.getInt(4) * header.getInt(8);
+			if (channel.size() < HEADER_BYTES + length * 8) {
+				throw new IOException(path + " is truncated");
+			}
+			return new MappedDoubles(channel, length);
+		}
+	}
+
+	int getRows() {
+		return header.getInt(4);
+	}
+
+	int getColumns() {
+		return header.getInt(8);
+	}
+
+	long getLength() {
+		return length;
+	}
+
+	double get(long index) {
+		return chunks[(int) (index >>> CHUNK_SHIFT)].getDouble((int) (index & CHUNK_MASK) << 3);
+	}
+
+	void set(long index, double value) {
+		chunks[(int) (index >>> CHUNK_SHIFT)].putDouble((int) (index & CHUNK_MASK) << 3, value);
+	}
+
+	/**
+	 * Writes all changes to the file
+	 */
+	void flush() {
+		header.force();
+		for (MappedByteBuffer chunk : chunks) {
+			chunk.force();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import java.io.IOException;
+
+/**
+ * Q-table stored off-heap in a memory-mapped file, indexed by state * numActions + action.
+ * Only the pages in use are held in memory, so the table can be larger than the Java heap,
+ * and the file can be opened again later to reuse the Q-values without serialization.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class MappedQTable extends QTable {
+
+	private static final int MAGIC = 0x51544142; // "QTAB"
+
+	private final MappedDoubles values;
+
+	private MappedQTable(MappedDoubles values) {
+		super(values.getRows(), values.getColumns());
+		this.values = values;
+	}
+
+	/**
+	 * Creates (or overwrites) the file and maps a table with all Q-values set to 0
+	 *
+	 * @param path
+	 * @param numStates
+	 * @param numActions
+	 * @return the table
+	 * @throws IOException
+	 */
+	public static MappedQTable create(String path, int numStates, int numActions) throws IOException {
+		return new MappedQTable(MappedDoubles.create(path, MAGIC, numStates, numActions));
+	}
+
+	/**
+	 * Maps a table that was created before
+	 *
+	 * @param path
+	 * @return the table, with the Q-values stored in the file
+	 * @throws IOException if the file cannot be read or does not hold a Q-table
+	 */
+	public static MappedQTable open(String path) throws IOException {
+		return new MappedQTable(MappedDoubles.open(path, MAGIC));
+	}
+
+	@Override
+	public double get(int state, int action) {
+		return values.get((long) state * numActions + action);
+	}
+
+	@Override
+	public void set(int state, int action, double value) {
+		values.set((long) state * numActions + action, value);
+	}
+
+	/**
+	 * Writes all changes to the file
+	 */
+	public void flush() {
+		values.flush();
+	}
+}
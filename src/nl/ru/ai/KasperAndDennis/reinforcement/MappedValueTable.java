@@ -0,0 +1,77 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import java.io.IOException;
+
+/**
+ * Value table stored off-heap in a memory-mapped file, indexed by state id.
+ * Only the pages in use are held in memory, so a planner given this table can solve maps whose values do not
+ * fit in the Java heap, and the file can be opened again later to reuse the values without serialization.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class MappedValueTable extends ValueTable {
+
+	private static final int MAGIC = 0x56544142; // "VTAB"
+
+	private final MappedDoubles values;
+
+	private MappedValueTable(MappedDoubles values) {
+		super(values.getRows());
+		this.values = values;
+	}
+
+	/**
+	 * Creates (or overwrites) the file and maps a table with all values set to 0
+	 *
+	 * @param path
+	 * @param numStates
+	 * @return the table
+	 * @throws IOException
+	 */
+	public static MappedValueTable create(String path, int numStates) throws IOException {
+		return new MappedValueTable(MappedDoubles.create(path, MAGIC, numStates, 1));
+	}
+
+	/**
+	 * Creates (or overwrites) the file and stores the given values in it
+	 *
+	 * @param path
+	 * @param values the value of every state, indexed by state id
+	 * @return the table
+	 * @throws IOException
+	 */
+	public static MappedValueTable save(String path, double[] values) throws IOException {
+		MappedValueTable table = create(path, values.length);
+		table.copyFrom(values);
+		table.flush();
+		return table;
+	}
+
+	/**
+	 * Maps a table that was created before
+	 *
+	 * @param path
+	 * @return the table, with the values stored in the file
+	 * @throws IOException if the file cannot be read or does not hold a value table
+	 */
+	public static MappedValueTable open(String path) throws IOException {
+		return new MappedValueTable(MappedDoubles.open(path, MAGIC));
+	}
+
+	@Override
+	public double get(int state) {
+		return values.get(state);
+	}
+
+	@Override
+	public void set(int state, double value) {
+		values.set(state, value);
+	}
+
+	/**
+	 * Writes all changes to the file
+	 */
+	public void flush() {
+		values.flush();
+	}
+}
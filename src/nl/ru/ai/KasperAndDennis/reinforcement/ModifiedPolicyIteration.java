@@ -0,0 +1,54 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+
+/**
+ * Modified policy iteration: like policy iteration, but every policy is only evaluated with a fixed number
+ * of sweeps. Stops once the Bellman residual is below the tolerance, like value iteration.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class ModifiedPolicyIteration extends PolicyIteration {
+
+	private final int EVALUATION_SWEEPS;
+
+	public ModifiedPolicyIteration(MarkovDecisionProblem mdp, double gamma, int evaluationSweeps) {
+		this(mdp, gamma, evaluationSweeps, true);
+	}
+
+	/**
+	 * Sets up modified policy iteration for the given MDP.
+	 *
+	 * @param mdp              the MDP to solve
+	 * @param gamma            discount factor, should be below 1
+	 * @param evaluationSweeps the number of evaluation sweeps per improvement step (at least 1)
+	 * @param solveNow         if false nothing is computed yet, so the settings can be changed before calling
+	 *                         solve()
+	 */
+	public ModifiedPolicyIteration(MarkovDecisionProblem mdp, double gamma, int evaluationSweeps, boolean solveNow) {
+		super(mdp, gamma, false);
+		this.EVALUATION_SWEEPS = Math.max(1, evaluationSweeps);
+		if (solveNow) {
+			solve();
+		}
+	}
+
+	/**
+	 * Evaluates the current policy with a fixed number of in-place sweeps.
+	 */
+	@Override
+	protected void evaluatePolicy() {
+		for (int sweep = 0; sweep < EVALUATION_SWEEPS; sweep++) {
+			evaluationSweep();
+		}
+	}
+
+	/**
+	 * A stable policy does not mean the values have converged when the evaluation is partial, so this only
+	 * looks at the Bellman residual.
+	 */
+	@Override
+	protected boolean hasConverged(int changed) {
+		return bellmanResidual < tolerance;
+	}
+}
@@ -0,0 +1,216 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import nl.ru.ai.KasperAndDennis.metrics.Metrics;
+import nl.ru.ai.KasperAndDennis.metrics.MetricsListener;
+import nl.ru.ai.vroon.mdp.Action;
+import nl.ru.ai.vroon.mdp.HeadlessEnvironment;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+import nl.ru.ai.vroon.mdp.SplitMixRandom;
+
+/**
+ * Q-learning with several worker threads that all update one shared Q-table.
+ * Every worker has its own HeadlessEnvironment and random number generator, both split off deterministically,
+ * and applies its updates with the chosen UpdateStrategy.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class ParallelQLearning {
+
+	private static final Action[] ACTIONS = Action.values();
+	private final MarkovDecisionProblem MDP;
+	private final int WORKERS;
+	private final UpdateStrategy STRATEGY;
+	private final QTable qValues;
+	private SplitMixRandom rand = new SplitMixRandom();
+	private long maxEpisodeSteps = Long.MAX_VALUE;
+	private long steps = 0;
+	private long elapsedNanos = 0;
+	private MetricsListener metrics = null;
+
+	/**
+	 * @param mdp      the MDP to learn; every worker trains in its own headless copy
+	 * @param workers  the number of worker threads
+	 * @param strategy how the workers update the shared Q-table
+	 */
+	public ParallelQLearning(MarkovDecisionProblem mdp, int workers, UpdateStrategy strategy) {
+		this.MDP = mdp;
+		this.WORKERS = Math.max(1, workers);
+		this.STRATEGY = strategy;
+		this.qValues = strategy.createTable(mdp.getNumStates(), ACTIONS.length);
+	}
+
+	/**
+	 * Seeds the generator the workers' generators are split off. Together with a seeded MDP this makes the
+	 * start states and actions of every worker reproducible (the interleaving of the updates is not).
+	 *
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		rand = new SplitMixRandom(seed);
+	}
+
+	/**
+	 * Sets the maximum number of steps of one episode (unlimited by default). An episode that reaches it is cut
+	 * off, so training also ends on a map where the agent can start on a field it cannot reach a terminal from.
+	 *
+	 * @param maxEpisodeSteps
+	 */
+	public void setMaxEpisodeSteps(long maxEpisodeSteps) {
+		this.maxEpisodeSteps = maxEpisodeSteps;
+	}
+
+	/**
+	 * Reports every episode of every worker to the given listener (none by default).
+	 * The listener is called from the worker threads.
+	 *
+	 * @param metrics the listener, or null to stop reporting
+	 */
+	public void setMetricsListener(MetricsListener metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Lets every worker run the given number of episodes, each from a random start state, with a fixed epsilon.
+	 * If the calling thread is interrupted, the workers stop after their current episode; they have all stopped
+	 * when this returns (with the interrupt status of the calling thread set).
+	 *
+	 * @return the shared Q-table
+	 */
+	public QTable train(final int epochsPerWorker, final double discount, final double epsilon,
+			final double learningRate) {
+		final long[] workerSteps = new long[WORKERS];
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[WORKERS];
+		for (int i = 0; i < WORKERS; i++) {
+			final int worker = i;
+			final HeadlessEnvironment environment = new HeadlessEnvironment(MDP);
+			final SplitMixRandom workerRand = rand.split();
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						workerSteps[worker] = runWorker(environment, workerRand, epochsPerWorker, discount, epsilon,
+								learningRate);
+					} catch (Throwable t) {
+						synchronized (failure) {
+							failure[0] = t;
+						}
+					}
+				}
+			}, "q-learning-worker-" + i);
+		}
+		long start = System.nanoTime();
+		if (WORKERS == 1) {
+			// A single worker runs on the calling thread
+			threads[0].run();
+			threads = new Thread[0];
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		// No worker may still be updating the table (or its step count) when this returns
+		boolean interrupted = false;
+		for (Thread thread : threads) {
+			while (true) {
+				try {
+					thread.join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+					for (Thread worker : threads) {
+						worker.interrupt();
+					}
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		elapsedNanos += System.nanoTime() - start;
+		synchronized (failure) {
+			if (failure[0] != null) {
+				throw new RuntimeException("A Q-learning worker failed", failure[0]);
+			}
+		}
+		for (long count : workerSteps) {
+			steps += count;
+		}
+		return qValues;
+	}
+
+	/**
+	 * The training loop of one worker; stops early, after the current episode, when its thread is interrupted
+	 *
+	 * @return the number of steps the worker took
+	 */
+	private long runWorker(HeadlessEnvironment environment, SplitMixRandom rand, int epochs, double discount,
+			double epsilon, double learningRate) {
+		MetricsListener listener = metrics;
+		long count = 0;
+		for (int epoch = 0; epoch < epochs && !Thread.currentThread().isInterrupted(); epoch++) {
+			long startNanos = (listener != null) ? System.nanoTime() : 0;
+			long startBytes = (listener != null) ? Metrics.allocatedBytes() : 0;
+			long startCount = count;
+			double episodeReturn = 0;
+			environment.restart();
+			QLearning.setStartState(environment, rand);
+			environment.restart();
+			while (!environment.isTerminated() && count - startCount < maxEpisodeSteps) {
+				int oldState = environment.getState();
+				int action = QLearning.chooseAction(oldState, epsilon, qValues, rand);
+				double reward = environment.performAction(ACTIONS[action]);
+				STRATEGY.update(qValues, oldState, action, reward, environment.getState(), discount, learningRate);
+				episodeReturn += reward;
+				count++;
+			}
+			if (listener != null) {
+				long bytes = (startBytes < 0) ? -1 : Metrics.allocatedBytes() - startBytes;
+				listener.episodeDone(epoch, (int) (count - startCount), episodeReturn, epsilon,
+						System.nanoTime() - startNanos, bytes);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the total number of steps taken by all workers
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * @return the total number of steps per second of wall time, over all workers (0 before the first train())
+	 */
+	public double getStepsPerSecond() {
+		if (elapsedNanos == 0) {
+			return 0;
+		}
+		return steps / (elapsedNanos / 1E9);
+	}
+
+	public QTable getQValues() {
+		return qValues;
+	}
+
+	/**
+	 * Trains the given MDP with every update strategy and 1, 2, 4, ... up to maxWorkers workers and prints the
+	 * throughput, so the scaling over the cores can be compared.
+	 */
+	public static void reportScaling(MarkovDecisionProblem mdp, int maxWorkers, int epochsPerWorker, double discount,
+			double epsilon, double learningRate) {
+		StringBuilder string = new StringBuilder();
+		string.append(String.format("%-9s | %-8s | %-14s | %s%n", "strategy", "workers", "steps/s", "steps/s/worker"));
+		for (UpdateStrategy strategy : UpdateStrategy.values()) {
+			for (int workers = 1; workers <= maxWorkers; workers = (workers * 2 > maxWorkers && workers < maxWorkers)
+					? maxWorkers : workers * 2) {
+				ParallelQLearning learner = new ParallelQLearning(mdp, workers, strategy);
+				learner.train(epochsPerWorker, discount, epsilon, learningRate);
+				double throughput = learner.getStepsPerSecond();
+				string.append(String.format("%-9s | %-8d | %-14.0f | %.0f%n", strategy, workers, throughput,
+						throughput / workers));
+			}
+		}
+		System.out.println(string.toString());
+	}
+}
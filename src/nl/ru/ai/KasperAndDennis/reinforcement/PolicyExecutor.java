@@ -0,0 +1,87 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import nl.ru.ai.vroon.mdp.Action;
+import nl.ru.ai.vroon.mdp.Environment;
+
+/**
+ * Runs a CompiledPolicy: rolls out episodes in an environment and answers bulk state to action queries.
+ * Nothing is allocated per step or per query.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public final class PolicyExecutor {
+
+	private static final Action[] ACTIONS = Action.values();
+
+	private PolicyExecutor() {
+	}
+
+	/**
+	 * Runs one episode from the current state of the environment, following the policy
+	 *
+	 * @param environment
+	 * @param policy
+	 * @param maxSteps    the episode is cut off after this many steps
+	 * @return the sum of the rewards gained
+	 */
+	public static double rollout(Environment environment, CompiledPolicy policy, int maxSteps) {
+		return rollout(environment, policy, maxSteps, null);
+	}
+
+	/**
+	 * Runs one episode from the current state of the environment, following the policy, and records the states
+	 * visited
+	 *
+	 * @param environment
+	 * @param policy
+	 * @param maxSteps    the episode is cut off after this many steps (or when trajectory is full)
+	 * @param trajectory  receives the state after every step, or null
+	 * @return the sum of the rewards gained
+	 */
+	public static double rollout(Environment environment, CompiledPolicy policy, int maxSteps, int[] trajectory) {
+		if (trajectory != null) {
+			maxSteps = Math.min(maxSteps, trajectory.length);
+		}
+		double total = 0;
+		for (int step = 0; step < maxSteps && !environment.isTerminated(); step++) {
+			int action = policy.getAction(environment.getState());
+			if (action < 0) {
+				break;
+			}
+			total += environment.performAction(ACTIONS[action]);
+			if (trajectory != null) {
+				trajectory[step] = environment.getState();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Rolls out a number of episodes, each starting from a restart() of the environment
+	 *
+	 * @param environment
+	 * @param policy
+	 * @param episodes
+	 * @param maxSteps    each episode is cut off after this many steps
+	 * @return the mean of the rewards gained per episode
+	 */
+	public static double evaluate(Environment environment, CompiledPolicy policy, int episodes, int maxSteps) {
+		double total = 0;
+		for (int episode = 0; episode < episodes; episode++) {
+			environment.restart();
+			total += rollout(environment, policy, maxSteps);
+		}
+		return total / episodes;
+	}
+
+	/**
+	 * Looks up the action of every given state
+	 *
+	 * @param policy
+	 * @param states state ids
+	 * @param result receives the action ordinal of each state (at least as long as states)
+	 */
+	public static void query(CompiledPolicy policy, int[] states, byte[] result) {
+		policy.getActions(states, 0, states.length, result);
+	}
+}
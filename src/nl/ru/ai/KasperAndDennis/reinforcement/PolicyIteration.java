@@ -0,0 +1,302 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import nl.ru.ai.KasperAndDennis.metrics.MetricsListener;
+import nl.ru.ai.vroon.mdp.Action;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+
+/**
+ * Policy iteration: alternately evaluates the current policy and makes it greedy with respect to its values,
+ * until the policy no longer changes.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class PolicyIteration {
+
+	private static final Action[] ACTIONS = Action.values();
+	private static final double DELTA = 1E-10;
+	protected final int WIDTH, HEIGHT, NUM_STATES;
+	protected final MarkovDecisionProblem MDP;
+	protected final CompiledMDP MODEL;
+	protected final double GAMMA;
+	protected final Action[][] POLICY;
+	protected final ValueTable values;
+	protected final int[] policy;
+	protected double tolerance = DELTA;
+	private int maxImprovements = Integer.MAX_VALUE;
+	private int improvements = 0;
+	private int evaluationSweeps = 0;
+	protected double bellmanResidual = Double.POSITIVE_INFINITY;
+	private long elapsedNanos = 0;
+	private MetricsListener metrics = null;
+
+	public PolicyIteration(MarkovDecisionProblem mdp, double gamma) {
+		this(mdp, gamma, true);
+	}
+
+	/**
+	 * Sets up policy iteration for the given MDP.
+	 *
+	 * @param mdp      the MDP to solve
+	 * @param gamma    discount factor, should be below 1
+	 * @param solveNow if false nothing is computed yet, so the settings can be changed before calling solve()
+	 */
+	public PolicyIteration(MarkovDecisionProblem mdp, double gamma, boolean solveNow) {
+		this.GAMMA = gamma;
+		this.MDP = mdp;
+		this.WIDTH = mdp.getWidth();
+		this.HEIGHT = mdp.getHeight();
+		this.NUM_STATES = mdp.getNumStates();
+		this.MODEL = CompiledMDP.compile(mdp);
+		this.POLICY = new Action[WIDTH][HEIGHT];
+		this.values = new DoubleValueTable(NUM_STATES);
+		this.policy = new int[NUM_STATES];
+		// Start with the policy that is greedy with respect to the immediate rewards
+		for (int state = 0; state < NUM_STATES; state++) {
+			int action = MODEL.greedyAction(state, values, GAMMA);
+			policy[state] = (action < 0) ? 0 : action;
+		}
+		if (solveNow) {
+			solve();
+		}
+	}
+
+	/**
+	 * Runs policy iteration and prints the values and the resulting policy
+	 */
+	public void solve() {
+		policyIteration();
+		System.out.println("Improvements:" + improvements + " Evaluation sweeps:" + evaluationSweeps);
+		System.out.println("Time: " + getElapsedMillis() + " ms");
+		showValues();
+		getPolicy();
+		showPolicy();
+	}
+
+	/**
+	 * The Policy Iteration algorithm.
+	 * Evaluates and improves the policy until hasConverged() or the maximum number of improvements is reached.
+	 */
+	public void policyIteration() {
+		long start = System.nanoTime();
+		for (int step = 0; step < maxImprovements; step++) {
+			improvements++;
+			evaluatePolicy();
+			int changed = improvePolicy();
+			if (hasConverged(changed)) {
+				break;
+			}
+		}
+		elapsedNanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Evaluates the current policy with in-place sweeps until the values change less than the tolerance.
+	 */
+	protected void evaluatePolicy() {
+		double maxResidual;
+		do {
+			maxResidual = evaluationSweep();
+		} while (maxResidual >= tolerance);
+	}
+
+	/**
+	 * Backs up every state once, in place, under the current policy.
+	 *
+	 * @return the largest absolute change of a state value
+	 */
+	protected double evaluationSweep() {
+		evaluationSweeps++;
+		long start = (metrics != null) ? System.nanoTime() : 0;
+		double maxResidual = 0;
+		for (int state = 0; state < NUM_STATES; state++) {
+			double value = MODEL.qValue(state, policy[state], values, GAMMA);
+			double residual = Math.abs(value - values.get(state));
+			maxResidual = (residual > maxResidual) ? residual : maxResidual;
+			values.set(state, value);
+		}
+		if (metrics != null) {
+			metrics.sweepDone(evaluationSweeps, maxResidual, System.nanoTime() - start, NUM_STATES);
+		}
+		return maxResidual;
+	}
+
+	/**
+	 * Makes the policy greedy with respect to the current values. The action of a state only changes if
+	 * another action is strictly better, so the policy cannot cycle between equally good actions.
+	 * Also records the Bellman residual (the largest difference between the greedy and the current value).
+	 *
+	 * @return the number of states whose action changed
+	 */
+	protected int improvePolicy() {
+		int changed = 0;
+		double maxResidual = 0;
+		for (int state = 0; state < NUM_STATES; state++) {
+			if (MODEL.isTerminal(state)) {
+				continue;
+			}
+			int current = policy[state];
+			double currentValue = MODEL.qValue(state, current, values, GAMMA);
+			double bestValue = currentValue;
+			int best = current;
+			for (int action = 0; action < CompiledMDP.NUM_ACTIONS; action++) {
+				double value = MODEL.qValue(state, action, values, GAMMA);
+				if (value > bestValue + DELTA) {
+					bestValue = value;
+					best = action;
+				}
+			}
+			if (best != current) {
+				policy[state] = best;
+				changed++;
+			}
+			double residual = Math.abs(bestValue - values.get(state));
+			maxResidual = (residual > maxResidual) ? residual : maxResidual;
+		}
+		bellmanResidual = maxResidual;
+		return changed;
+	}
+
+	/**
+	 * Policy iteration has converged once an improvement step changes nothing.
+	 *
+	 * @param changed the number of states whose action changed in the last improvement step
+	 */
+	protected boolean hasConverged(int changed) {
+		return changed == 0;
+	}
+
+	/**
+	 * Get the action of the policy for every state
+	 */
+	public void getPolicy() {
+		for (int state = 0; state < NUM_STATES; state++) {
+			POLICY[MDP.getStateX(state)][MDP.getStateY(state)] = MODEL.isTerminal(state) ? null
+					: ACTIONS[policy[state]];
+		}
+	}
+
+	/**
+	 * Compiles the current policy into a table that can be served without this planner
+	 *
+	 * @param packed if true the actions are stored in 2 bits per state
+	 * @return the policy
+	 */
+	public CompiledPolicy compilePolicy(boolean packed) {
+		byte[] actions = new byte[NUM_STATES];
+		for (int state = 0; state < NUM_STATES; state++) {
+			actions[state] = (byte) (MODEL.isTerminal(state) ? CompiledPolicy.NONE : policy[state]);
+		}
+		return CompiledPolicy.fromActions(actions, WIDTH, HEIGHT, packed);
+	}
+
+	/**
+	 * Sets the change of the values below which an evaluation is considered exact (1E-10 by default)
+	 *
+	 * @param tolerance
+	 */
+	public void setTolerance(double tolerance) {
+		if (tolerance > 0) {
+			this.tolerance = tolerance;
+		} else {
+			System.err.println("ERROR:PolicyIteration:setTolerance: the tolerance should be positive.");
+		}
+	}
+
+	/**
+	 * Reports every evaluation sweep to the given listener (none by default)
+	 *
+	 * @param metrics the listener, or null to stop reporting
+	 */
+	public void setMetricsListener(MetricsListener metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Sets the maximum number of improvement steps (unlimited by default)
+	 *
+	 * @param maxImprovements
+	 */
+	public void setMaxImprovements(int maxImprovements) {
+		if (maxImprovements >= 1) {
+			this.maxImprovements = maxImprovements;
+		} else {
+			System.err.println("ERROR:PolicyIteration:setMaxImprovements: at least one improvement is needed.");
+		}
+	}
+
+	/**
+	 * @return the number of improvement steps performed
+	 */
+	public int getImprovements() {
+		return improvements;
+	}
+
+	/**
+	 * @return the number of evaluation sweeps performed
+	 */
+	public int getEvaluationSweeps() {
+		return evaluationSweeps;
+	}
+
+	/**
+	 * @return the largest difference between the greedy and the current value in the last improvement step
+	 */
+	public double getBellmanResidual() {
+		return bellmanResidual;
+	}
+
+	/**
+	 * @return the wall time spent in policyIteration() in milliseconds
+	 */
+	public double getElapsedMillis() {
+		return elapsedNanos / 1E6;
+	}
+
+	/**
+	 * @return a copy of the current value of every state, indexed by state id
+	 */
+	public double[] getValues() {
+		return values.toArray();
+	}
+
+	/**
+	 * @return the current value of the state with the given x and y coordinate
+	 */
+	public double getValue(int x, int y) {
+		return values.get(MDP.getStateId(x, y));
+	}
+
+	/**
+	 * print the values
+	 *
+	 */
+	public void showValues() {
+		StringBuilder string = new StringBuilder();
+		for (int row = HEIGHT - 1; row >= 0; row--) {
+			string.append("| ");
+			for (int column = 0; column < WIDTH; column++) {
+				string.append(String.format("%-20s", values.get(MDP.getStateId(column, row))));
+				string.append(" | ");
+			}
+			string.append("\n");
+		}
+		System.out.println(string.toString());
+	}
+
+	/**
+	 * print the policy
+	 *
+	 */
+	public void showPolicy() {
+		StringBuilder string = new StringBuilder();
+		for (int row = HEIGHT - 1; row >= 0; row--) {
+			string.append("| ");
+			for (int column = 0; column < WIDTH; column++) {
+				string.append(String.format("%-5s", POLICY[column][row]));
+				string.append(" | ");
+			}
+			string.append("\n");
+		}
+		System.out.println(string.toString());
+	}
+}
@@ -0,0 +1,86 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import java.util.Arrays;
+
+/**
+ * Reverse of the transitions of a CompiledMDP: for every state the distinct states that can reach it in one
+ * step, stored in compressed sparse row form, with the largest probability (over all actions) of that step.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public final class PredecessorIndex {
+
+	final int[] start;
+	final int[] predecessors;
+	final double[] maxProbabilities;
+
+	/**
+	 * Builds the predecessor index of the given model.
+	 *
+	 * @param model
+	 */
+	public PredecessorIndex(CompiledMDP model) {
+		int numStates = model.numStates;
+		int numRows = numStates * CompiledMDP.NUM_ACTIONS;
+		int[] last = new int[numStates];
+		Arrays.fill(last, -1);
+
+		// First pass: count the distinct predecessors of every state
+		int[] counts = new int[numStates + 1];
+		for (int state = 0; state < numStates; state++) {
+			for (int i = model.rowStart[state * CompiledMDP.NUM_ACTIONS]; i < model.rowStart[(state + 1)
+					* CompiledMDP.NUM_ACTIONS]; i++) {
+				int successor = model.successors[i];
+				if (last[successor] != state) {
+					last[successor] = state;
+					counts[successor + 1]++;
+				}
+			}
+		}
+		start = new int[numStates + 1];
+		for (int state = 0; state < numStates; state++) {
+			start[state + 1] = start[state] + counts[state + 1];
+		}
+
+		// Second pass: fill in the predecessors, merging the probabilities of all actions to their maximum
+		predecessors = new int[start[numStates]];
+		maxProbabilities = new double[start[numStates]];
+		int[] fill = Arrays.copyOf(start, numStates);
+		Arrays.fill(last, -1);
+		int[] slot = new int[numStates];
+		for (int row = 0; row < numRows; row++) {
+			int state = row / CompiledMDP.NUM_ACTIONS;
+			for (int i = model.rowStart[row]; i < model.rowStart[row + 1]; i++) {
+				int successor = model.successors[i];
+				if (last[successor] != state) {
+					last[successor] = state;
+					slot[successor] = fill[successor]++;
+					predecessors[slot[successor]] = state;
+				}
+				int j = slot[successor];
+				maxProbabilities[j] = Math.max(maxProbabilities[j], model.probabilities[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of predecessors of the given state
+	 */
+	public int getNumPredecessors(int state) {
+		return start[state + 1] - start[state];
+	}
+
+	/**
+	 * @return the i-th predecessor of the given state
+	 */
+	public int getPredecessor(int state, int i) {
+		return predecessors[start[state] + i];
+	}
+
+	/**
+	 * @return the largest probability that the i-th predecessor of the given state steps to it
+	 */
+	public double getMaxProbability(int state, int i) {
+		return maxProbabilities[start[state] + i];
+	}
+}
@@ -0,0 +1,225 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import nl.ru.ai.vroon.mdp.Action;
+import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+
+/**
+ * Asynchronous value iteration that only backs up states whose value can still change noticeably.
+ *
+ * Every non-terminal state is queued with its exact Bellman residual, and its priority stays a bound on that
+ * residual until it is backed up again. Backing up a state resets its bound,
+ * and a change of delta in its value raises the bound of every predecessor p by gamma * P(s|p) * delta, the
+ * most its Q-values can change. Planning stops when no bound is above the tolerance, so all residuals are
+ * below it as well.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class PrioritizedSweeping {
+
+	private static final Action[] ACTIONS = Action.values();
+	private static final double DELTA = 1E-10;
+	private final int WIDTH, HEIGHT, NUM_STATES;
+	private final MarkovDecisionProblem MDP;
+	private final CompiledMDP MODEL;
+	private final PredecessorIndex PREDECESSORS;
+	private final double GAMMA;
+	protected final Action[][] POLICY;
+	private final ValueTable values;
+	private final ResidualQueue queue;
+	private double tolerance = DELTA;
+	private long maxBackups = Long.MAX_VALUE;
+	private long backups = 0;
+	private long elapsedNanos = 0;
+
+	public PrioritizedSweeping(MarkovDecisionProblem mdp, double gamma) {
+		this(mdp, gamma, true);
+	}
+
+	/**
+	 * Sets up prioritized sweeping for the given MDP.
+	 *
+	 * @param mdp      the MDP to solve
+	 * @param gamma    discount factor
+	 * @param solveNow if false nothing is computed yet, so the settings can be changed before calling solve()
+	 */
+	public PrioritizedSweeping(MarkovDecisionProblem mdp, double gamma, boolean solveNow) {
+		this(mdp, gamma, new DoubleValueTable(mdp.getNumStates()), solveNow);
+	}
+
+	/**
+	 * Sets up prioritized sweeping for the given MDP that keeps its values in the given table, for instance a
+	 * MappedValueTable for a map whose values do not fit in the heap.
+	 *
+	 * @param mdp      the MDP to solve
+	 * @param gamma    discount factor
+	 * @param values   the table to start from and to back the values up in
+	 * @param solveNow if false nothing is computed yet, so the settings can be changed before calling solve()
+	 * @throws IllegalArgumentException if the table does not have a value for every state of the MDP
+	 */
+	public PrioritizedSweeping(MarkovDecisionProblem mdp, double gamma, ValueTable values, boolean solveNow) {
+		if (values.getNumStates() != mdp.getNumStates()) {
+			throw new IllegalArgumentException("expected a table of " + mdp.getNumStates() + " values");
+		}
+		this.GAMMA = gamma;
+		this.MDP = mdp;
+		this.WIDTH = mdp.getWidth();
+		this.HEIGHT = mdp.getHeight();
+		this.NUM_STATES = mdp.getNumStates();
+		this.MODEL = CompiledMDP.compile(mdp);
+		this.PREDECESSORS = new PredecessorIndex(MODEL);
+		this.POLICY = new Action[WIDTH][HEIGHT];
+		this.values = values;
+		this.queue = new ResidualQueue(NUM_STATES);
+		if (solveNow) {
+			solve();
+		}
+	}
+
+	/**
+	 * Runs prioritized sweeping and prints the values and the resulting policy
+	 */
+	public void solve() {
+		prioritizedSweeping();
+		System.out.println("Backups:" + backups + " (a full sweep is " + NUM_STATES + ")");
+		System.out.println("Time: " + getElapsedMillis() + " ms");
+		showValues();
+		getPolicy();
+		showPolicy();
+	}
+
+	/**
+	 * The Prioritized Sweeping algorithm.
+	 * Backs up the state with the highest priority until no priority is above the tolerance.
+	 */
+	public void prioritizedSweeping() {
+		long start = System.nanoTime();
+		if (backups == 0) {
+			// Every state starts with its exact residual. States below the tolerance are queued as well, so the
+			// bound a change of a successor adds to starts from their residual instead of from 0
+			for (int state = 0; state < NUM_STATES; state++) {
+				if (!MODEL.isTerminal(state)) {
+					queue.update(state, Math.abs(MODEL.maxQ(state, values, GAMMA) - values.get(state)));
+				}
+			}
+		}
+		while (!queue.isEmpty() && queue.peekPriority() >= tolerance && backups < maxBackups) {
+			backup(queue.poll());
+		}
+		elapsedNanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Backs up the given state and raises the priorities of its predecessors by the most their residual
+	 * can have grown.
+	 *
+	 * @param state
+	 */
+	private void backup(int state) {
+		backups++;
+		double value = MODEL.maxQ(state, values, GAMMA);
+		double change = Math.abs(value - values.get(state));
+		values.set(state, value);
+		if (change == 0) {
+			return;
+		}
+		for (int i = PREDECESSORS.start[state], end = PREDECESSORS.start[state + 1]; i < end; i++) {
+			int predecessor = PREDECESSORS.predecessors[i];
+			double bound = queue.getPriority(predecessor) + GAMMA * PREDECESSORS.maxProbabilities[i] * change;
+			queue.update(predecessor, bound);
+		}
+	}
+
+	/**
+	 * Get the greedy action for every state
+	 */
+	public void getPolicy() {
+		for (int state = 0; state < NUM_STATES; state++) {
+			int action = MODEL.greedyAction(state, values, GAMMA);
+			POLICY[MDP.getStateX(state)][MDP.getStateY(state)] = (action < 0) ? null : ACTIONS[action];
+		}
+	}
+
+	/**
+	 * Sets the residual below which a state is not backed up anymore (1E-10 by default)
+	 *
+	 * @param tolerance
+	 */
+	public void setTolerance(double tolerance) {
+		if (tolerance > 0) {
+			this.tolerance = tolerance;
+		} else {
+			System.err.println("ERROR:PrioritizedSweeping:setTolerance: the tolerance should be positive.");
+		}
+	}
+
+	/**
+	 * Sets the maximum total number of backups (unlimited by default)
+	 *
+	 * @param maxBackups
+	 */
+	public void setMaxBackups(long maxBackups) {
+		this.maxBackups = maxBackups;
+	}
+
+	/**
+	 * @return the number of backups performed
+	 */
+	public long getBackups() {
+		return backups;
+	}
+
+	/**
+	 * @return the wall time spent in prioritizedSweeping() in milliseconds
+	 */
+	public double getElapsedMillis() {
+		return elapsedNanos / 1E6;
+	}
+
+	/**
+	 * @return a copy of the current value of every state, indexed by state id
+	 */
+	public double[] getValues() {
+		return values.toArray();
+	}
+
+	/**
+	 * @return the current value of the state with the given x and y coordinate
+	 */
+	public double getValue(int x, int y) {
+		return values.get(MDP.getStateId(x, y));
+	}
+
+	/**
+	 * print the values
+	 *
+	 */
+	public void showValues() {
+		StringBuilder string = new StringBuilder();
+		for (int row = HEIGHT - 1; row >= 0; row--) {
+			string.append("| ");
+			for (int column = 0; column < WIDTH; column++) {
+				string.append(String.format("%-20s", values.get(MDP.getStateId(column, row))));
+				string.append(" | ");
+			}
+			string.append("\n");
+		}
+		System.out.println(string.toString());
+	}
+
+	/**
+	 * print the policy
+	 *
+	 */
+	public void showPolicy() {
+		StringBuilder string = new StringBuilder();
+		for (int row = HEIGHT - 1; row >= 0; row--) {
+			string.append("| ");
+			for (int column = 0; column < WIDTH; column++) {
+				string.append(String.format("%-5s", POLICY[column][row]));
+				string.append(" | ");
+			}
+			string.append("\n");
+		}
+		System.out.println(string.toString());
+	}
+}
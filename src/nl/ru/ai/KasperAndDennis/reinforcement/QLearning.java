@@ -1,12 +1,16 @@
 package nl.ru.ai.KasperAndDennis.reinforcement;
 
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Random;
+import java.io.IOException;
+import nl.ru.ai.KasperAndDennis.metrics.EpisodeExport;
+import nl.ru.ai.KasperAndDennis.metrics.EpisodeWriter;
+import nl.ru.ai.KasperAndDennis.metrics.Metrics;
+import nl.ru.ai.KasperAndDennis.metrics.MetricsListener;
 import nl.ru.ai.vroon.mdp.Action;
+import nl.ru.ai.vroon.mdp.Environment;
 import nl.ru.ai.vroon.mdp.Field;
+import nl.ru.ai.vroon.mdp.HeadlessEnvironment;
 import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+import nl.ru.ai.vroon.mdp.SplitMixRandom;
 
 /**
  * 
@@ -16,135 +20,349 @@ import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
 
 public class QLearning {
 	
+	private static final Action[] ACTIONS = Action.values();
+	// The default episode log, and the text file its cumulative rewards are exported to:
+	public static final String EPISODE_LOG = "episodes.bin";
+	private static final String CUMULATIVE_REWARDS = "cumulative_rewards.txt";
+	private static volatile MetricsListener metrics = null;
+	
 	public QLearning (MarkovDecisionProblem mdp,  int epochs, double discount, double epsilon, double learningRate) {
 		start(mdp, epochs, discount, epsilon, learningRate);
 	}
 
+	/**
+	 * Runs Q-learning on the given MDP. If the MDP shows its progress, the agent is trained in the MDP itself so it
+	 * can be watched; otherwise it is trained in a HeadlessEnvironment copy of the MDP.
+	 * The learned values and policy are shown on top of the landscape of the MDP afterwards.
+	 */
 	public static void start(MarkovDecisionProblem mdp, int epochs, double discount, double epsilon,
 			double learningRate) {
-		int width = mdp.getWidth();
-		int height = mdp.getHeight();
-		HashMap<Action, Double>[][] qValues = initializeQValues(width, height);
-		ArrayList<Double> cumulativeRewards = new ArrayList<Double>();
-		cumulativeRewards.add(0.0);
-		for (int epoch = 0; epoch < epochs; epoch++) {
+		Environment environment = mdp.isShowProgress() ? mdp : new HeadlessEnvironment(mdp);
+		QTable qValues = start(environment, epochs, discount, epsilon, learningRate,
+				new DoubleQTable(mdp.getNumStates(), ACTIONS.length));
+		showOverlay(mdp, qValues);
+	}
+
+	/**
+	 * Shows the best Q-value and the best action of every state on top of the landscape of the MDP
+	 * 
+	 * @param qValues a table with a row for every state of the MDP
+	 */
+	public static void showOverlay(MarkovDecisionProblem mdp, QTable qValues) {
+		double[] values = new double[mdp.getNumStates()];
+		byte[] policy = new byte[mdp.getNumStates()];
+		for (int state = 0; state < values.length; state++) {
+			if (mdp.getField(state) == Field.EMPTY) {
+				values[state] = qValues.getMaxValue(state);
+				policy[state] = (byte) qValues.getBestAction(state);
+			} else {
+				policy[state] = CompiledPolicy.NONE;
+			}
+		}
+		mdp.setOverlay(values, policy);
+	}
+
+	/**
+	 * Reports every episode of the following runs to the given listener (none by default)
+	 * 
+	 * @param listener the listener, or null to stop reporting
+	 */
+	public static void setMetricsListener(MetricsListener listener) {
+		metrics = listener;
+	}
+
+	/**
+	 * Runs Q-learning in the given environment, storing the Q-values in the given table.
+	 * 
+	 * @param qValues a table with a row for every state of the environment and a column for every Action
+	 * @return the learned Q-values (the given table)
+	 */
+	public static QTable start(Environment mdp, int epochs, double discount, double epsilon,
+			double learningRate, QTable qValues) {
+		return start(mdp, epochs, discount, epsilon, learningRate, qValues, new SplitMixRandom());
+	}
+
+	/**
+	 * Runs Q-learning in the given environment, storing the Q-values in the given table.
+	 * 
+	 * @param qValues a table with a row for every state of the environment and a column for every Action
+	 * @param rand    the generator for the exploration and the start states; seed it (and the environment) to
+	 *                reproduce a run
+	 * @return the learned Q-values (the given table)
+	 */
+	public static QTable start(Environment mdp, int epochs, double discount, double epsilon,
+			double learningRate, QTable qValues, SplitMixRandom rand) {
+		return start(mdp, epochs, discount, epsilon, learningRate, qValues, rand, null, 0);
+	}
+
+	/**
+	 * Runs Q-learning in the given environment, saving a checkpoint every checkpointInterval epochs and at the end,
+	 * so a crashed run can be continued with resume().
+	 * 
+	 * @param qValues            a table with a row for every state of the environment and a column for every Action
+	 * @param rand               the generator for the exploration and the start states
+	 * @param checkpointPath     the file the checkpoint is saved to, or null to save none
+	 * @param checkpointInterval the number of epochs between two checkpoints (0 to only save at the end)
+	 * @return the learned Q-values (the given table)
+	 */
+	public static QTable start(Environment mdp, int epochs, double discount, double epsilon, double learningRate,
+			QTable qValues, SplitMixRandom rand, String checkpointPath, int checkpointInterval) {
+		return start(mdp, epochs, discount, epsilon, learningRate, qValues, rand, checkpointPath, checkpointInterval,
+				EPISODE_LOG);
+	}
+
+	/**
+	 * Runs Q-learning in the given environment like start() above, logging the episodes to the given file.
+	 * Give every run that can happen at the same time its own log.
+	 * 
+	 * @param episodeLog the file the episodes are logged to (EPISODE_LOG by default), or null to log none
+	 * @return the learned Q-values (the given table)
+	 */
+	public static QTable start(Environment mdp, int epochs, double discount, double epsilon, double learningRate,
+			QTable qValues, SplitMixRandom rand, String checkpointPath, int checkpointInterval, String episodeLog) {
+		return train(mdp, 0, epochs, discount, epsilon, learningRate, qValues, rand, checkpointPath,
+				checkpointInterval, episodeLog);
+	}
+
+	/**
+	 * Continues Q-learning from a checkpoint: its Q-values are copied into the given table, and its epoch count,
+	 * exploration rate and generator states are restored, so the run goes on exactly as if it had not stopped.
+	 * A checkpoint of another (for instance slightly changed) map with the same size can be used to warm-start.
+	 * The episode log keeps the records of the epochs before the checkpoint; records of later epochs (of a run
+	 * that stopped after the checkpoint was saved) are dropped, as those epochs are done again. If the log does not
+	 * hold the epochs of the checkpoint (for instance when warm-starting from another run) a new log is started.
+	 * 
+	 * @param checkpoint         a checkpoint saved by start() or resume()
+	 * @param epochs             the total number of epochs, including the ones done before the checkpoint
+	 * @param qValues            a table of the same size as the one in the checkpoint
+	 * @param checkpointPath     the file the checkpoint is saved to, or null to save none
+	 * @param checkpointInterval the number of epochs between two checkpoints (0 to only save at the end)
+	 * @return the learned Q-values (the given table)
+	 */
+	public static QTable resume(Environment mdp, Checkpoint checkpoint, int epochs, double discount,
+			double learningRate, QTable qValues, String checkpointPath, int checkpointInterval) {
+		return resume(mdp, checkpoint, epochs, discount, learningRate, qValues, checkpointPath, checkpointInterval,
+				EPISODE_LOG);
+	}
+
+	/**
+	 * Continues Q-learning from a checkpoint like resume() above, logging the episodes to the given file.
+	 * 
+	 * @param episodeLog the file the episodes are logged to (EPISODE_LOG by default), or null to log none
+	 * @return the learned Q-values (the given table)
+	 */
+	public static QTable resume(Environment mdp, Checkpoint checkpoint, int epochs, double discount,
+			double learningRate, QTable qValues, String checkpointPath, int checkpointInterval, String episodeLog) {
+		checkpoint.copyQValues(qValues);
+		SplitMixRandom rand = (checkpoint.getNumRandoms() > 0) ? checkpoint.getRandom(0) : new SplitMixRandom();
+		if (checkpoint.getNumRandoms() > 1) {
+			mdp.setRandom(checkpoint.getRandom(1));
+		}
+		if (checkpoint.getStartState() >= 0) {
+			mdp.setInitialState(checkpoint.getStartState());
+		}
+		return train(mdp, checkpoint.getIterations(), epochs, discount, checkpoint.getEpsilon(), learningRate,
+				qValues, rand, checkpointPath, checkpointInterval, episodeLog);
+	}
+
+	private static QTable train(Environment mdp, int firstEpoch, int epochs, double discount, double epsilon,
+			double learningRate, QTable qValues, SplitMixRandom rand, String checkpointPath, int checkpointInterval,
+			String episodeLog) {
+		// The episodes are streamed to disk, so the memory used does not grow with the number of epochs.
+		// A failing log is closed and dropped, but never stops the training.
+		EpisodeWriter log = (episodeLog == null) ? null : openEpisodeLog(episodeLog, firstEpoch);
+		boolean logged = log != null;
+		for (int epoch = firstEpoch; epoch < epochs; epoch++) {
 			if (epoch % 50 == 0)
 				System.out.println("epoch: " + epoch);
 			if (epoch % epochs / 2 == 0) {
 				epsilon *= 0.5;
 			}
+			MetricsListener listener = metrics;
+			long startNanos = (listener != null) ? System.nanoTime() : 0;
+			long startBytes = (listener != null) ? Metrics.allocatedBytes() : 0;
 			mdp.restart();
-			setStartState(mdp);
+			setStartState(mdp, rand);
 			double cumulativeReward = 0.0;
+			int steps = 0;
 			while (!mdp.isTerminated()) {
-				int oldX = mdp.getStateXPosition();
-				int oldY = mdp.getStateYPosition();
-				Action action = chooseAction(mdp, epsilon, qValues);
-				double reward = mdp.performAction(action);
+				int oldState = mdp.getState();
+				int action = chooseAction(oldState, epsilon, qValues, rand);
+				double reward = mdp.performAction(ACTIONS[action]);
 				cumulativeReward += reward;
-				double oldQValue = qValues[oldX][oldY].get(action);
-				int newX = mdp.getStateXPosition();
-				int newY = mdp.getStateYPosition();
-				Action bestAction = getBestAction(qValues[newX][newY]);
-				double bestActionValue = qValues[newX][newY].get(bestAction);
-				double newQValue = oldQValue + learningRate * (reward + discount * bestActionValue - oldQValue);
-				qValues[oldX][oldY].put(action, newQValue);
+				steps++;
+				update(qValues, oldState, action, reward, mdp.getState(), discount, learningRate);
+			}
+			if (log != null)
+				log = logEpisode(log, episodeLog, epoch, steps, cumulativeReward, epsilon);
+			if (listener != null) {
+				long bytes = (startBytes < 0) ? -1 : Metrics.allocatedBytes() - startBytes;
+				listener.episodeDone(epoch, steps, cumulativeReward, epsilon, System.nanoTime() - startNanos, bytes);
+			}
+			if (checkpointPath != null && (epoch + 1 == epochs
+					|| (checkpointInterval > 0 && (epoch + 1) % checkpointInterval == 0))) {
+				if (log != null)
+					log = flushEpisodeLog(log, episodeLog);
+				saveCheckpoint(checkpointPath, epoch + 1, epsilon, qValues, rand, mdp);
 			}
-			cumulativeReward += cumulativeRewards.get(cumulativeRewards.size() - 1);
-			cumulativeRewards.add(cumulativeReward);
 		}
+		if (log != null)
+			closeEpisodeLog(log, episodeLog);
 		displayPolicy(mdp, qValues, false);
-		printCumulativeRewards(cumulativeRewards);
+		if (logged)
+			printCumulativeRewards(episodeLog);
+		return qValues;
 	}
 
-	private static Action getBestAction(HashMap<Action, Double> actionValuePairs) {
-		double maxValue = Double.NEGATIVE_INFINITY;
-		Action bestAction = null;
-		for (Action action : actionValuePairs.keySet()) {
-			Double value = actionValuePairs.get(action);
-			if (value > maxValue) {
-				maxValue = value;
-				bestAction = action;
+	/**
+	 * Opens the episode log, keeping the records of the epochs before firstEpoch. If those cannot be kept a new log
+	 * is started, and if that fails too the run is not logged.
+	 * 
+	 * @return the log, or null if no log could be opened
+	 */
+	private static EpisodeWriter openEpisodeLog(String path, int firstEpoch) {
+		if (firstEpoch > 0) {
+			try {
+				return new EpisodeWriter(path, firstEpoch);
+			} catch (IOException e) {
+				System.err.println("ERROR:QLearning:resume: " + e.getMessage() + "; starting a new episode log.");
 			}
 		}
-		return bestAction;
+		try {
+			return new EpisodeWriter(path);
+		} catch (IOException e) {
+			System.err.println("ERROR:QLearning:train: cannot open " + path + ", training without it: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Appends the record of one episode to the log
+	 * 
+	 * @return the log, or null if it failed (it is then closed, and the training goes on without it)
+	 */
+	private static EpisodeWriter logEpisode(EpisodeWriter log, String path, int epoch, int steps,
+			double cumulativeReward, double epsilon) {
+		try {
+			log.write(epoch, steps, cumulativeReward, epsilon);
+			return log;
+		} catch (IOException e) {
+			System.err.println("ERROR:QLearning:train: cannot write " + path + ", training without it: " + e);
+			discardEpisodeLog(log);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the buffered records of the log to disk
+	 * 
+	 * @return the log, or null if it failed (it is then closed, and the training goes on without it)
+	 */
+	private static EpisodeWriter flushEpisodeLog(EpisodeWriter log, String path) {
+		try {
+			log.flush();
+			return log;
+		} catch (IOException e) {
+			System.err.println("ERROR:QLearning:train: cannot write " + path + ", training without it: " + e);
+			discardEpisodeLog(log);
+			return null;
+		}
+	}
+
+	/**
+	 * Closes a log that failed, without reporting that the records it still buffers cannot be written either
+	 */
+	private static void discardEpisodeLog(EpisodeWriter log) {
+		try {
+			log.close();
+		} catch (IOException e) {
+		}
 	}
 
-	private static Action greedyActionChooser(MarkovDecisionProblem mdp, HashMap<Action, Double>[][] qValues) {
-		int x = mdp.getStateXPosition();
-		int y = mdp.getStateYPosition();
-		HashMap<Action, Double> actionValuePairs = qValues[x][y];
-		Action bestAction = getBestAction(actionValuePairs);
-		return bestAction;
+	private static void closeEpisodeLog(EpisodeWriter log, String path) {
+		try {
+			log.close();
+		} catch (IOException e) {
+			System.err.println("ERROR:QLearning:train: cannot close " + path + ": " + e);
+		}
 	}
 
-	private static Action chooseAction(MarkovDecisionProblem mdp, double epsilon, HashMap<Action, Double>[][] qValues) {
-		if (Math.random() > epsilon) {
-			return greedyActionChooser(mdp, qValues);
+	private static void saveCheckpoint(String path, int epochs, double epsilon, QTable qValues, SplitMixRandom rand,
+			Environment mdp) {
+		Checkpoint checkpoint = new Checkpoint(epochs);
+		checkpoint.setEpsilon(epsilon);
+		checkpoint.setQValues(qValues);
+		checkpoint.setStartState(mdp.getInitialState());
+		checkpoint.setRandoms(rand, mdp.getRandom());
+		try {
+			checkpoint.save(path);
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+
+	/**
+	 * Moves the Q-value of the old state and action towards the reward plus the discounted best Q-value of the new state
+	 */
+	private static void update(QTable qValues, int oldState, int action, double reward, int newState, double discount,
+			double learningRate) {
+		double oldQValue = qValues.get(oldState, action);
+		double bestActionValue = qValues.getMaxValue(newState);
+		double newQValue = oldQValue + learningRate * (reward + discount * bestActionValue - oldQValue);
+		qValues.set(oldState, action, newQValue);
+	}
+
+	static int chooseAction(int state, double epsilon, QTable qValues, SplitMixRandom rand) {
+		if (rand.nextDouble() > epsilon) {
+			return qValues.getBestAction(state);
 		} else {
-			Random rand = new Random();
-			Action[] actions = Action.values();
-			return actions[rand.nextInt(Action.values().length)];
+			return rand.nextInt(ACTIONS.length);
 		}
 	}
 
-	private static void setStartState(MarkovDecisionProblem mdp) {
+	/**
+	 * Starts the next episode on a random empty field. Obstacles are left out as well as terminal states, since an
+	 * agent put on an obstacle that is walled in by other obstacles can never leave it.
+	 */
+	static void setStartState(Environment mdp, SplitMixRandom rand) {
 		int width = mdp.getWidth();
 		int height = mdp.getHeight();
-		Random rand = new Random();
-		int x, y;
+		int state;
 		do {
-			x = rand.nextInt(width);
-			y = rand.nextInt(height);
-			mdp.setInitialState(x, y);
-		} while (isTerminal(mdp, x, y));
-	}
-
-	private static HashMap<Action, Double>[][] initializeQValues(int width, int height) {
-		@SuppressWarnings("unchecked")
-		HashMap<Action, Double>[][] qValues = new HashMap[width][height];
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				qValues[x][y] = new HashMap<Action, Double>();
-				for (Action action : Action.values()) {
-					qValues[x][y].put(action, 0.0);
-				}
-			}
-		}
-		return qValues;
-	}
-
-	private static boolean isTerminal(MarkovDecisionProblem mdp, int x, int y) {
-		Field field = mdp.getField(x, y);
-		return field == Field.REWARD || field == Field.NEGREWARD;
+			int x = rand.nextInt(width);
+			int y = rand.nextInt(height);
+			state = mdp.getStateId(x, y);
+			mdp.setInitialState(state);
+		} while (mdp.getField(state) != Field.EMPTY);
 	}
 
-	private static void printCumulativeRewards(ArrayList<Double> rewards) {
+	/**
+	 * Writes the cumulative reward after every epoch to a text file, streaming from the episode log:
+	 * cumulative_rewards.txt for the default log, and the path of the log plus ".txt" for any other
+	 */
+	private static void printCumulativeRewards(String episodeLog) {
+		String path = episodeLog.equals(EPISODE_LOG) ? CUMULATIVE_REWARDS : episodeLog + ".txt";
 		try {
-			PrintWriter pw = new PrintWriter("cumulative_rewards.txt", "UTF-8");
-			for (double reward : rewards) {
-				pw.write(Double.toString(reward) + '\t');
-			}
-			pw.close();
-		} catch (Exception e) {
-			System.out.println(e);
+			EpisodeExport.exportCumulativeRewards(episodeLog, path);
+		} catch (IOException e) {
+			System.err.println("ERROR:QLearning:printCumulativeRewards: " + e);
 		}
 	}
 
-	private static void displayPolicy(MarkovDecisionProblem mdp, HashMap<Action, Double>[][] array,
-			boolean shouldShowValues) {
+	private static void displayPolicy(Environment mdp, QTable qValues, boolean shouldShowValues) {
 		StringBuilder sb = new StringBuilder();
-		int height = array[0].length;
-		int width = array.length;
+		int height = mdp.getHeight();
+		int width = mdp.getWidth();
 		sb.append("Policy: " + '\n');
 		for (int j = height - 1; j >= 0; j--) {
 			sb.append("| ");
 			for (int i = 0; i < width; i++) {
-				Field field = mdp.getField(i, j);
+				int state = mdp.getStateId(i, j);
+				Field field = mdp.getField(state);
 				switch (field) {
 				case EMPTY:
-					Action bestAction = getBestAction(array[i][j]);
-					double bestActionValue = Math.round(array[i][j].get(bestAction) * 100.0) / 100.0;
+					Action bestAction = ACTIONS[qValues.getBestAction(state)];
+					double bestActionValue = Math.round(qValues.getMaxValue(state) * 100.0) / 100.0;
 					sb.append(String.format("%-5s", shouldShowValues ? bestActionValue : bestAction));
 					break;
 				case NEGREWARD:
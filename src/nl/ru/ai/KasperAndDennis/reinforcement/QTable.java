@@ -0,0 +1,66 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+/**
+ * Table of Q-values for every state (id) and action (ordinal).
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public abstract class QTable {
+
+	protected final int numStates;
+	protected final int numActions;
+
+	protected QTable(int numStates, int numActions) {
+		this.numStates = numStates;
+		this.numActions = numActions;
+	}
+
+	/**
+	 * @return the Q-value of the given state and action
+	 */
+	public abstract double get(int state, int action);
+
+	/**
+	 * Sets the Q-value of the given state and action
+	 */
+	public abstract void set(int state, int action, double value);
+
+	/**
+	 * Finds the action with the highest Q-value (the lowest action ordinal on a tie)
+	 *
+	 * @param state
+	 * @return action ordinal
+	 */
+	public int getBestAction(int state) {
+		int bestAction = 0;
+		double maxValue = get(state, 0);
+		for (int action = 1; action < numActions; action++) {
+			double value = get(state, action);
+			if (value > maxValue) {
+				maxValue = value;
+				bestAction = action;
+			}
+		}
+		return bestAction;
+	}
+
+	/**
+	 * @return the highest Q-value of the given state
+	 */
+	public double getMaxValue(int state) {
+		double maxValue = get(state, 0);
+		for (int action = 1; action < numActions; action++) {
+			double value = get(state, action);
+			maxValue = (value > maxValue) ? value : maxValue;
+		}
+		return maxValue;
+	}
+
+	public int getNumStates() {
+		return numStates;
+	}
+
+	public int getNumActions() {
+		return numActions;
+	}
+}
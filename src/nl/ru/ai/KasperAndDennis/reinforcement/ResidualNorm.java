@@ -0,0 +1,11 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+/**
+ * Enumerates the norms a planner can use to measure the change of the value function during one sweep
+ * 
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public enum ResidualNorm {
+	MAX, // i.e. the largest absolute change of any state value
+	SPAN // i.e. the largest change minus the smallest change (ignores a uniform shift of all values)
+}
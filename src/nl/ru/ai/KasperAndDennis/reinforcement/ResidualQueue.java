@@ -0,0 +1,129 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary max-heap of states keyed by their priority (e.g. a bound on their Bellman residual).
+ * Every state is in the queue at most once; its priority can be changed while it is queued.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public final class ResidualQueue {
+
+	private final int[] heap;
+	private final int[] position; // index of each state in the heap, or -1 if it is not queued
+	private final double[] priority;
+	private int size = 0;
+
+	/**
+	 * @param numStates the number of states that can be queued (state ids 0 to numStates - 1)
+	 */
+	public ResidualQueue(int numStates) {
+		heap = new int[numStates];
+		position = new int[numStates];
+		priority = new double[numStates];
+		Arrays.fill(position, -1);
+	}
+
+	/**
+	 * Queues the state with the given priority, or changes its priority if it is already queued
+	 *
+	 * @param state
+	 * @param newPriority
+	 */
+	public void update(int state, double newPriority) {
+		int i = position[state];
+		if (i < 0) {
+			i = size++;
+			heap[i] = state;
+			position[state] = i;
+			priority[state] = newPriority;
+			siftUp(i);
+		} else {
+			double oldPriority = priority[state];
+			priority[state] = newPriority;
+			if (newPriority > oldPriority) {
+				siftUp(i);
+			} else {
+				siftDown(i);
+			}
+		}
+	}
+
+	/**
+	 * @return the priority of the given state, or 0 if it is not queued
+	 */
+	public double getPriority(int state) {
+		return position[state] < 0 ? 0 : priority[state];
+	}
+
+	/**
+	 * @return the priority of the state that poll() would return
+	 */
+	public double peekPriority() {
+		return priority[heap[0]];
+	}
+
+	/**
+	 * Removes the state with the highest priority from the queue
+	 *
+	 * @return the state
+	 */
+	public int poll() {
+		int top = heap[0];
+		position[top] = -1;
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void siftUp(int i) {
+		int state = heap[i];
+		double key = priority[state];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (priority[heap[parent]] >= key) {
+				break;
+			}
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = state;
+		position[state] = i;
+	}
+
+	private void siftDown(int i) {
+		int state = heap[i];
+		double key = priority[state];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && priority[heap[child + 1]] > priority[heap[child]]) {
+				child++;
+			}
+			if (priority[heap[child]] <= key) {
+				break;
+			}
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = state;
+		position[state] = i;
+	}
+}
@@ -0,0 +1,33 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+/**
+ * DoubleQTable with a fixed number of locks, each guarding the rows of the states that map onto it,
+ * so threads only contend when they update states in the same stripe.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public class StripedQTable extends DoubleQTable {
+
+	private static final int STRIPES = 1024; // a power of two
+	private final Object[] locks = new Object[STRIPES];
+
+	/**
+	 * Creates a table with all Q-values set to 0
+	 *
+	 * @param numStates
+	 * @param numActions
+	 */
+	public StripedQTable(int numStates, int numActions) {
+		super(numStates, numActions);
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * @return the lock guarding the Q-values of the given state
+	 */
+	public Object getLock(int state) {
+		return locks[state & (STRIPES - 1)];
+	}
+}
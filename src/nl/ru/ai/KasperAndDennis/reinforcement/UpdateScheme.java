@@ -0,0 +1,12 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+/**
+ * Enumerates the orders in which value iteration can update the states during a sweep
+ * 
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public enum UpdateScheme {
+	JACOBI,       // i.e. every state is backed up from the values of the previous sweep (double buffered)
+	GAUSS_SEIDEL, // i.e. states are backed up in place, in state id order, using freshly updated neighbours
+	RED_BLACK     // i.e. in place, first all cells with an even x + y, then all cells with an odd x + y
+}
@@ -0,0 +1,90 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+/**
+ * Enumerates the ways several threads can apply Q-learning updates to one shared Q-table
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public enum UpdateStrategy {
+
+	/**
+	 * Racy read-modify-write on a plain DoubleQTable (Hogwild!): no synchronisation at all,
+	 * so an update is occasionally lost when two threads write the same Q-value.
+	 */
+	HOGWILD {
+		@Override
+		public QTable createTable(int numStates, int numActions) {
+			return new DoubleQTable(numStates, numActions);
+		}
+
+		@Override
+		public void update(QTable qValues, int oldState, int action, double reward, int newState, double discount,
+				double learningRate) {
+			double oldQValue = qValues.get(oldState, action);
+			double target = reward + discount * qValues.getMaxValue(newState);
+			qValues.set(oldState, action, oldQValue + learningRate * (target - oldQValue));
+		}
+	},
+
+	/**
+	 * Lock-free compare-and-set on an AtomicQTable: an update is retried until no other thread changed
+	 * the Q-value in between, so no update is lost.
+	 */
+	CAS {
+		@Override
+		public QTable createTable(int numStates, int numActions) {
+			return new AtomicQTable(numStates, numActions);
+		}
+
+		@Override
+		public void update(QTable qValues, int oldState, int action, double reward, int newState, double discount,
+				double learningRate) {
+			AtomicQTable table = (AtomicQTable) qValues;
+			double target = reward + discount * table.getMaxValue(newState);
+			double oldQValue;
+			do {
+				oldQValue = table.get(oldState, action);
+			} while (!table.compareAndSet(oldState, action, oldQValue,
+					oldQValue + learningRate * (target - oldQValue)));
+		}
+	},
+
+	/**
+	 * Each update holds the lock of the stripe of its state in a StripedQTable.
+	 */
+	STRIPED {
+		@Override
+		public QTable createTable(int numStates, int numActions) {
+			return new StripedQTable(numStates, numActions);
+		}
+
+		@Override
+		public void update(QTable qValues, int oldState, int action, double reward, int newState, double discount,
+				double learningRate) {
+			StripedQTable table = (StripedQTable) qValues;
+			double bestActionValue;
+			synchronized (table.getLock(newState)) {
+				bestActionValue = table.getMaxValue(newState);
+			}
+			synchronized (table.getLock(oldState)) {
+				double oldQValue = table.get(oldState, action);
+				double target = reward + discount * bestActionValue;
+				table.set(oldState, action, oldQValue + learningRate * (target - oldQValue));
+			}
+		}
+	};
+
+	/**
+	 * @return a new table, filled with zeros, that this strategy can update
+	 */
+	public abstract QTable createTable(int numStates, int numActions);
+
+	/**
+	 * Moves the Q-value of the old state and action towards the reward plus the discounted best Q-value of the
+	 * new state. May be called by several threads at once.
+	 *
+	 * @param qValues a table made by createTable
+	 */
+	public abstract void update(QTable qValues, int oldState, int action, double reward, int newState,
+			double discount, double learningRate);
+}
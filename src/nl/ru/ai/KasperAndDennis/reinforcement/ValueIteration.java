@@ -1,8 +1,15 @@
 package nl.ru.ai.KasperAndDennis.reinforcement;
 
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import nl.ru.ai.KasperAndDennis.metrics.MetricsListener;
+
 import nl.ru.ai.vroon.mdp.Action;
 import nl.ru.ai.vroon.mdp.Field;
 import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
+import nl.ru.ai.vroon.mdp.SuccessorIndex;
 
 /**
  * 
@@ -11,59 +18,553 @@ import nl.ru.ai.vroon.mdp.MarkovDecisionProblem;
 public class ValueIteration {
 
 	private int counter = 0;
-	private boolean IS_DETERMINISTIC = true;
-	private final double POSREWARD;
-	private final double[] TRANSITION_PROBABILITIES;
 	private static final double DELTA = 1E-10;
-	private final double NEGREWARD;
-	private final double NOREWARD;
-	private final int WIDTH, HEIGHT;
+	private final int WIDTH, HEIGHT, NUM_STATES;
 	private final MarkovDecisionProblem MDP;
+	private final CompiledMDP MODEL;
+	private final SuccessorIndex SUCCESSORS;
 	private final double GAMMA;
 	protected final Action[][] POLICY;
-	private double[][] currentStates;
-	private double[][] nextStates;
+	private final ValueTable VALUES, BUFFER;
+	// The table read from and the table written to in a sweep; the same table for an in-place scheme
+	private ValueTable currentStates;
+	private ValueTable nextStates;
+	private int parallelism = 1;
+	private UpdateScheme updateScheme = UpdateScheme.JACOBI;
+	private long elapsedNanos = 0;
+	private double tolerance = DELTA;
+	private double epsilon = 0;
+	private ResidualNorm residualNorm = ResidualNorm.MAX;
+	private int maxIterations = Integer.MAX_VALUE;
+	private long timeBudgetNanos = Long.MAX_VALUE;
+	private ConvergenceTrace trace = null;
+	private String checkpointPath = null;
+	private int checkpointInterval = 0;
+	private MetricsListener metrics = null;
+	// Smallest number of states a parallel sweep task will split:
+	private static final int MIN_CHUNK = 4096;
 
 	public ValueIteration(MarkovDecisionProblem mdp, double gamma) {
+		this(mdp, gamma, true);
+	}
+
+	/**
+	 * Sets up value iteration for the given MDP.
+	 * 
+	 * @param mdp      the MDP to solve
+	 * @param gamma    discount factor
+	 * @param solveNow if false nothing is computed yet, so the settings can be changed before calling solve()
+	 */
+	public ValueIteration(MarkovDecisionProblem mdp, double gamma, boolean solveNow) {
+		this(mdp, gamma, new DoubleValueTable(mdp.getNumStates()), new DoubleValueTable(mdp.getNumStates()),
+				solveNow);
+	}
+
+	/**
+	 * Sets up value iteration for the given MDP that keeps its values in the given tables, for instance
+	 * MappedValueTables for a map whose values do not fit in the heap.
+	 * 
+	 * @param mdp      the MDP to solve
+	 * @param gamma    discount factor
+	 * @param values   the table to start from and to leave the values in after every call to valueIteration()
+	 * @param buffer   the second table a JACOBI sweep writes to, or null to only use the in-place schemes (the
+	 *                 update scheme is then GAUSS_SEIDEL by default)
+	 * @param solveNow if false nothing is computed yet, so the settings can be changed before calling solve()
+	 * @throws IllegalArgumentException if a table does not have a value for every state of the MDP
+	 */
+	public ValueIteration(MarkovDecisionProblem mdp, double gamma, ValueTable values, ValueTable buffer,
+			boolean solveNow) {
+		if (values.getNumStates() != mdp.getNumStates()
+				|| (buffer != null && buffer.getNumStates() != mdp.getNumStates())) {
+			throw new IllegalArgumentException("expected tables of " + mdp.getNumStates() + " values");
+		}
 		this.GAMMA = gamma;
 		this.MDP = mdp;
 		this.WIDTH = mdp.getWidth();
 		this.HEIGHT = mdp.getHeight();
-		this.POSREWARD = mdp.getRewardVals()[0];
-		this.NEGREWARD = mdp.getRewardVals()[1];
-		this.NOREWARD = mdp.getRewardVals()[2];
-		this.TRANSITION_PROBABILITIES = mdp.getTransitionProbs();
+		this.NUM_STATES = mdp.getNumStates();
+		this.MODEL = CompiledMDP.compile(mdp);
+		this.SUCCESSORS = mdp.getSuccessorIndex();
 		this.POLICY = new Action[WIDTH][HEIGHT];
-		this.nextStates = new double[WIDTH][HEIGHT];
-		this.currentStates = new double[WIDTH][HEIGHT];
-		valueIteration();
-                System.out.println("Iterations:" + counter);
-                showValues();
+		this.VALUES = values;
+		this.BUFFER = buffer;
+		this.currentStates = values;
+		this.nextStates = buffer;
+		if (buffer == null) {
+			this.updateScheme = UpdateScheme.GAUSS_SEIDEL;
+		}
+		if (solveNow) {
+			solve();
+		}
+	}
+
+	/**
+	 * Runs value iteration and prints the values and the resulting policy
+	 */
+	public void solve() {
+		ConvergenceTrace trace = valueIteration();
+		System.out.println("Iterations:" + counter + " (" + trace.getStopReason() + ")");
+		System.out.println("Time: " + getElapsedMillis() + " ms");
+		showValues();
 		getPolicy();
 		showPolicy();
 	}
 
 	/**
-	 * The Value Iteration algorithm
+	 * The Value Iteration algorithm.
+	 * Sweeps, in the order given by the update scheme, until the residual is below the convergence threshold,
+	 * the maximum number of sweeps has been done or the time budget has run out.
+	 * 
+	 * @return the residual of every sweep and the reason value iteration stopped
+	 */
+	public ConvergenceTrace valueIteration() {
+		long start = System.nanoTime();
+		trace = new ConvergenceTrace(getThreshold(), residualNorm);
+		boolean inPlace = updateScheme != UpdateScheme.JACOBI;
+		currentStates = VALUES;
+		nextStates = inPlace ? VALUES : BUFFER;
+		ForkJoinPool pool = (parallelism > 1 && updateScheme != UpdateScheme.GAUSS_SEIDEL)
+				? new ForkJoinPool(parallelism) : null;
+		long previousElapsed = 0;
+		try {
+			while (true) {
+				counter++;
+				double[] diffs = sweep(pool);
+				if (!inPlace) {
+					ValueTable previousStates = currentStates;
+					currentStates = nextStates;
+					nextStates = previousStates;
+				}
+				long elapsed = System.nanoTime() - start;
+				if (metrics != null) {
+					double residual = (residualNorm == ResidualNorm.SPAN) ? diffs[1] - diffs[0]
+							: Math.max(Math.abs(diffs[0]), Math.abs(diffs[1]));
+					metrics.sweepDone(counter, residual, elapsed - previousElapsed, NUM_STATES);
+				}
+				previousElapsed = elapsed;
+				if (trace.addSweep(diffs[0], diffs[1], elapsed)) {
+					trace.stop(ConvergenceTrace.StopReason.CONVERGED);
+				} else if (trace.getSweeps() >= maxIterations) {
+					trace.stop(ConvergenceTrace.StopReason.MAX_ITERATIONS);
+				} else if (elapsed >= timeBudgetNanos) {
+					trace.stop(ConvergenceTrace.StopReason.TIME_BUDGET);
+				}
+				if (checkpointPath != null && (counter % checkpointInterval == 0 || trace.getStopReason() != null)) {
+					saveCheckpoint(checkpointPath);
+				}
+				if (trace.getStopReason() != null) {
+					break;
+				}
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+			if (currentStates != VALUES) {
+				// An odd number of Jacobi sweeps left the values in the buffer
+				VALUES.copyFrom(currentStates);
+				currentStates = VALUES;
+			}
+			elapsedNanos += System.nanoTime() - start;
+		}
+		return trace;
+	}
+
+	/**
+	 * Starts the next call to valueIteration() from the given values instead of the current ones, for instance
+	 * the values of a slightly different map, so it needs fewer sweeps to converge.
+	 * 
+	 * @param values the value of every state, indexed by state id
+	 */
+	public void warmStart(double[] values) {
+		if (values.length != NUM_STATES) {
+			System.err.println("ERROR:ValueIteration:warmStart: expected " + NUM_STATES + " values.");
+			return;
+		}
+		VALUES.copyFrom(values);
+	}
+
+	/**
+	 * Continues from a checkpoint: starts from its values and counts on from its number of sweeps.
+	 * 
+	 * @param checkpoint a checkpoint with values
+	 */
+	public void warmStart(Checkpoint checkpoint) {
+		if (checkpoint.getValues() == null) {
+			System.err.println("ERROR:ValueIteration:warmStart: the checkpoint has no values.");
+			return;
+		}
+		warmStart(checkpoint.getValues());
+		counter = checkpoint.getIterations();
+	}
+
+	/**
+	 * @return a checkpoint with the number of sweeps, the current values and their greedy policy
+	 */
+	public Checkpoint getCheckpoint() {
+		Checkpoint checkpoint = new Checkpoint(counter);
+		checkpoint.setValues(currentStates.toArray());
+		checkpoint.setPolicy(greedyPolicy());
+		return checkpoint;
+	}
+
+	/**
+	 * Shows the current values and their greedy policy on top of the landscape of the MDP
+	 */
+	public void showOverlay() {
+		MDP.setOverlay(currentStates.toArray(), greedyPolicy());
+	}
+
+	/**
+	 * @return the action ordinal that is greedy with respect to the current values for every state (-1 for a
+	 *         terminal state)
+	 */
+	private byte[] greedyPolicy() {
+		byte[] policy = new byte[NUM_STATES];
+		for (int state = 0; state < NUM_STATES; state++) {
+			policy[state] = (byte) MODEL.greedyAction(state, currentStates, GAMMA);
+		}
+		return policy;
+	}
+
+	/**
+	 * Saves a checkpoint of the current values (see getCheckpoint())
+	 * 
+	 * @param path
+	 */
+	public void saveCheckpoint(String path) {
+		try {
+			getCheckpoint().save(path);
+		} catch (IOException e) {
+			System.err.println("ERROR:ValueIteration:saveCheckpoint: " + e);
+		}
+	}
+
+	/**
+	 * Makes valueIteration() save a checkpoint every interval sweeps and when it stops
+	 * 
+	 * @param path     the file the checkpoint is saved to, or null to stop checkpointing
+	 * @param interval the number of sweeps between two checkpoints
+	 */
+	public void setCheckpointing(String path, int interval) {
+		if (interval >= 1) {
+			this.checkpointPath = path;
+			this.checkpointInterval = interval;
+		} else {
+			System.err.println("ERROR:ValueIteration:setCheckpointing: the interval should be at least 1.");
+		}
+	}
+
+	/**
+	 * Reports every sweep to the given listener (none by default)
+	 * 
+	 * @param metrics the listener, or null to stop reporting
+	 */
+	public void setMetricsListener(MetricsListener metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Returns the residual below which value iteration stops.
+	 * If an epsilon is set this is the standard bound that makes the greedy policy epsilon-optimal:
+	 * epsilon*(1-gamma)/(2*gamma) on the max norm, or epsilon*(1-gamma)/gamma on the span.
+	 * 
+	 * @return the convergence threshold
+	 */
+	public double getThreshold() {
+		if (epsilon <= 0) {
+			return tolerance;
+		}
+		double bound = epsilon * (1 - GAMMA) / GAMMA;
+		return (residualNorm == ResidualNorm.SPAN) ? bound : bound / 2;
+	}
+
+	/**
+	 * Backs up every state once, in the order given by the update scheme.
+	 * 
+	 * @param pool the pool to run the sweep on, or null to run it on the calling thread
+	 * @return the smallest and the largest (signed) change of a state value
+	 */
+	private double[] sweep(ForkJoinPool pool) {
+		double[] diffs = { Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		switch (updateScheme) {
+		case GAUSS_SEIDEL:
+			jacobiSweep(0, NUM_STATES, diffs);
+			break;
+		case RED_BLACK:
+			if (pool == null) {
+				redBlackSweep(0, 0, HEIGHT, diffs);
+				redBlackSweep(1, 0, HEIGHT, diffs);
+			} else {
+				int rowChunk = Math.max(1, chunkSize() / WIDTH);
+				merge(diffs, pool.invoke(new SweepTask(0, 0, HEIGHT, rowChunk)));
+				merge(diffs, pool.invoke(new SweepTask(1, 0, HEIGHT, rowChunk)));
+			}
+			break;
+		default:
+			if (pool == null) {
+				jacobiSweep(0, NUM_STATES, diffs);
+			} else {
+				merge(diffs, pool.invoke(new SweepTask(JACOBI, 0, NUM_STATES, chunkSize())));
+			}
+			break;
+		}
+		return diffs;
+	}
+
+	/**
+	 * Widens the range of changes in diffs to include the range in other
+	 */
+	private static void merge(double[] diffs, double[] other) {
+		diffs[0] = Math.min(diffs[0], other[0]);
+		diffs[1] = Math.max(diffs[1], other[1]);
+	}
+
+	/**
+	 * Backs up the states in [from, to) from currentStates into nextStates.
+	 * If both are the same table (Gauss-Seidel) the updates are done in place.
+	 * 
+	 * @param diffs the smallest and largest change so far, widened by the changes of these states
+	 */
+	private void jacobiSweep(int from, int to, double[] diffs) {
+		ValueTable current = currentStates;
+		ValueTable next = nextStates;
+		double minDiff = diffs[0], maxDiff = diffs[1];
+		for (int state = from; state < to; state++) {
+			double oldValue = current.get(state);
+			double value = MODEL.maxQ(state, current, GAMMA);
+			next.set(state, value);
+			double diff = value - oldValue;
+			minDiff = (diff < minDiff) ? diff : minDiff;
+			maxDiff = (diff > maxDiff) ? diff : maxDiff;
+		}
+		diffs[0] = minDiff;
+		diffs[1] = maxDiff;
+	}
+
+	/**
+	 * Backs up, in place, the cells of one colour in the rows [fromRow, toRow).
+	 * A cell only moves to its four neighbours (which have the other colour) or stays put, so the cells of
+	 * one colour can be updated in any order, or in parallel, without reading each other's new values.
+	 * 
+	 * @param colour 0 for the cells with an even x + y, 1 for the cells with an odd x + y
+	 * @param diffs  the smallest and largest change so far, widened by the changes of these states
+	 */
+	private void redBlackSweep(int colour, int fromRow, int toRow, double[] diffs) {
+		ValueTable values = currentStates;
+		double minDiff = diffs[0], maxDiff = diffs[1];
+		for (int y = fromRow; y < toRow; y++) {
+			for (int state = y * WIDTH + ((y + colour) & 1), end = (y + 1) * WIDTH; state < end; state += 2) {
+				double oldValue = values.get(state);
+				double value = MODEL.maxQ(state, values, GAMMA);
+				values.set(state, value);
+				double diff = value - oldValue;
+				minDiff = (diff < minDiff) ? diff : minDiff;
+				maxDiff = (diff > maxDiff) ? diff : maxDiff;
+			}
+		}
+		diffs[0] = minDiff;
+		diffs[1] = maxDiff;
+	}
+
+	/**
+	 * @return the number of states below which a parallel sweep is not split any further
 	 */
-	public void valueIteration() {
-		IS_DETERMINISTIC = MDP.isDeterministic();
-		boolean hasConverged = false;
-		while (!hasConverged) {
-			counter++;
-			for (int row = 0; row < WIDTH; row++) {
-				for (int col = 0; col < HEIGHT; col++) {
-					Field field = MDP.getField(row, col);
-					if (isTerminal(field)) {
-						continue;
-					}
-					int[] state = { row, col };
-					nextStates[row][col] = getMaxQ(state);
-					hasConverged = Math.abs(nextStates[row][col] - currentStates[row][col]) < DELTA;
+	private int chunkSize() {
+		return Math.max(MIN_CHUNK, NUM_STATES / (parallelism * 8));
+	}
+
+	// Marks a SweepTask that runs jacobiSweep instead of redBlackSweep
+	private static final int JACOBI = -1;
+
+	/**
+	 * Runs jacobiSweep over a range of states, or redBlackSweep for one colour over a range of rows, splitting
+	 * the range in halves until they are small enough, and reduces the changes of the halves to their range.
+	 * Every state is backed up exactly as in the sequential sweep, so the values are identical.
+	 */
+	private class SweepTask extends RecursiveTask<double[]> {
+		private static final long serialVersionUID = 1L;
+		private final int colour, from, to, chunkSize;
+
+		SweepTask(int colour, int from, int to, int chunkSize) {
+			this.colour = colour;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (to - from <= chunkSize) {
+				double[] diffs = { Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+				if (colour == JACOBI) {
+					jacobiSweep(from, to, diffs);
+				} else {
+					redBlackSweep(colour, from, to, diffs);
 				}
+				return diffs;
 			}
-			currentStates = nextStates;
-			nextStates = new double[WIDTH][HEIGHT];
+			int middle = (from + to) >>> 1;
+			SweepTask left = new SweepTask(colour, from, middle, chunkSize);
+			left.fork();
+			double[] diffs = new SweepTask(colour, middle, to, chunkSize).compute();
+			merge(diffs, left.join());
+			return diffs;
+		}
+	}
+
+	/**
+	 * @return a copy of the current value of every state, indexed by state id
+	 */
+	public double[] getValues() {
+		return currentStates.toArray();
+	}
+
+	/**
+	 * @return the table the values are kept in between calls to valueIteration()
+	 */
+	public ValueTable getValueTable() {
+		return VALUES;
+	}
+
+	/**
+	 * @return the current value of the state with the given x and y coordinate
+	 */
+	public double getValue(int x, int y) {
+		return currentStates.get(MDP.getStateId(x, y));
+	}
+
+	/**
+	 * @return the number of sweeps performed
+	 */
+	public int getIterations() {
+		return counter;
+	}
+
+	/**
+	 * @return the wall time spent in valueIteration() in milliseconds
+	 */
+	public double getElapsedMillis() {
+		return elapsedNanos / 1E6;
+	}
+
+	/**
+	 * @return the trace of the last call to valueIteration(), or null if it has not run yet
+	 */
+	public ConvergenceTrace getTrace() {
+		return trace;
+	}
+
+	/**
+	 * Sets the residual below which value iteration stops (1E-10 by default).
+	 * Clears the epsilon set by setEpsilonOptimal.
+	 * 
+	 * @param tolerance
+	 */
+	public void setTolerance(double tolerance) {
+		if (tolerance > 0) {
+			this.tolerance = tolerance;
+			this.epsilon = 0;
+		} else {
+			System.err.println("ERROR:ValueIteration:setTolerance: the tolerance should be positive.");
+		}
+	}
+
+	/**
+	 * Makes value iteration stop as soon as the greedy policy is guaranteed to be epsilon-optimal
+	 * (see getThreshold()).
+	 * 
+	 * @param epsilon the maximum loss of the policy compared to the optimal policy
+	 */
+	public void setEpsilonOptimal(double epsilon) {
+		if (epsilon > 0) {
+			this.epsilon = epsilon;
+		} else {
+			System.err.println("ERROR:ValueIteration:setEpsilonOptimal: epsilon should be positive.");
+		}
+	}
+
+	/**
+	 * Sets the norm the residual of a sweep is measured in (MAX by default)
+	 * 
+	 * @param residualNorm
+	 */
+	public void setResidualNorm(ResidualNorm residualNorm) {
+		this.residualNorm = residualNorm;
+	}
+
+	/**
+	 * Sets the maximum number of sweeps one call to valueIteration() may do (unlimited by default)
+	 * 
+	 * @param maxIterations
+	 */
+	public void setMaxIterations(int maxIterations) {
+		if (maxIterations >= 1) {
+			this.maxIterations = maxIterations;
+		} else {
+			System.err.println("ERROR:ValueIteration:setMaxIterations: at least one iteration is needed.");
+		}
+	}
+
+	/**
+	 * Sets the wall time after which value iteration stops, checked after every sweep (unlimited by default)
+	 * 
+	 * @param millis
+	 */
+	public void setTimeBudget(long millis) {
+		if (millis > 0) {
+			this.timeBudgetNanos = millis * 1000000L;
+		} else {
+			System.err.println("ERROR:ValueIteration:setTimeBudget: the time budget should be positive.");
+		}
+	}
+
+	/**
+	 * Sets the order in which the states are updated (JACOBI by default, GAUSS_SEIDEL without a buffer)
+	 * 
+	 * @param updateScheme
+	 */
+	public void setUpdateScheme(UpdateScheme updateScheme) {
+		if (updateScheme == UpdateScheme.JACOBI && BUFFER == null) {
+			System.err.println("ERROR:ValueIteration:setUpdateScheme: JACOBI needs a buffer table.");
+			return;
+		}
+		this.updateScheme = updateScheme;
+	}
+
+	/**
+	 * Solves the given MDP with every update scheme and prints the number of sweeps and the wall time each
+	 * of them needed to converge, so the fastest scheme for a map can be chosen.
+	 * 
+	 * @param mdp
+	 * @param gamma
+	 * @param parallelism the number of threads used by the schemes that can sweep in parallel
+	 */
+	public static void reportUpdateSchemes(MarkovDecisionProblem mdp, double gamma, int parallelism) {
+		StringBuilder string = new StringBuilder();
+		string.append(String.format("%-14s | %-8s | %s%n", "scheme", "sweeps", "time (ms)"));
+		for (UpdateScheme scheme : UpdateScheme.values()) {
+			ValueIteration valueIteration = new ValueIteration(mdp, gamma, false);
+			valueIteration.setUpdateScheme(scheme);
+			valueIteration.setParallelism(parallelism);
+			valueIteration.valueIteration();
+			string.append(String.format("%-14s | %-8d | %.3f%n", scheme, valueIteration.getIterations(),
+					valueIteration.getElapsedMillis()));
+		}
+		System.out.println(string.toString());
+	}
+
+	/**
+	 * Sets the number of threads used for a sweep (1, the default, sweeps on the calling thread).
+	 * Gauss-Seidel sweeps always run on the calling thread.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism >= 1) {
+			this.parallelism = parallelism;
+		} else {
+			System.err.println("ERROR:ValueIteration:setParallelism: parallelism should be at least 1.");
 		}
 	}
 
@@ -74,38 +575,31 @@ public class ValueIteration {
 	/**
 	 * Finds the maximum Q value for all Actions
 	 * 
-	 * @param state x and y coordinate
+	 * @param state state id
 	 * @return maximum Q value for a state
 	 */
-	protected double getMaxQ(int[] state) {
-		double maxValue = Double.NEGATIVE_INFINITY;
-		for (Action action : Action.values()) {
-			double currentValue = qFunction(state, action);
-			maxValue = (currentValue > maxValue) ? currentValue : maxValue;
-		}
-		return maxValue;
+	protected double getMaxQ(int state) {
+		return MODEL.maxQ(state, currentStates, GAMMA);
 	}
 
 	protected Action bestAction(int x, int y) {
+		int state = MDP.getStateId(x, y);
 		double maxValue = Double.NEGATIVE_INFINITY;
 		Action bestAction = null;
 		for (Action action : Action.values()) {
-			if (invalidAction(x, y, action)) {
-				double val = currentStates[x][y];
-				if (val > maxValue) {
-					maxValue = val;
-					bestAction = action;
-				}
+			int next = SUCCESSORS.get(state, action);
+			double val;
+			if (next == state) {
+				// The move is blocked
+				val = currentStates.get(state);
 			} else {
-				int dx = action.GetDX();
-				int dy = action.GetDY();
-				Field field = MDP.getField(x + dx, y + dy);
-				double val = (field == Field.REWARD) ? POSREWARD + 1E-6
-						: ((field == Field.NEGREWARD) ? NEGREWARD - 1E-6 : currentStates[x + dx][y + dy]);
-				if (val > maxValue) {
-					maxValue = val;
-					bestAction = action;
-				}
+				Field field = MDP.getField(next);
+				val = (field == Field.REWARD) ? MDP.getStateReward(next) + 1E-6
+						: ((field == Field.NEGREWARD) ? MDP.getStateReward(next) - 1E-6 : currentStates.get(next));
+			}
+			if (val > maxValue) {
+				maxValue = val;
+				bestAction = action;
 			}
 		}
 		return bestAction;
@@ -114,10 +608,10 @@ public class ValueIteration {
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		for (int row = HEIGHT; row > 0; row--) {
+		for (int row = HEIGHT - 1; row >= 0; row--) {
 			sb.append("| ");
 			for (int column = 0; column < WIDTH; column++) {
-				sb.append(String.format("%f", currentStates[column][row]));
+				sb.append(String.format("%f", currentStates.get(MDP.getStateId(column, row))));
 				sb.append(" | ");
 			}
 			sb.append("\n");
@@ -127,79 +621,14 @@ public class ValueIteration {
 	}
 
 	/**
-	 * Computes the Q-values for a state and action pair.
+	 * Compiles the policy that is greedy with respect to the current values into a table that can be served
+	 * without this planner
 	 * 
-	 * @param state  state composed of x and y coordinate
-	 * @param action action
-	 * @return Q-value
+	 * @param packed if true the actions are stored in 2 bits per state
+	 * @return the policy
 	 */
-	private double qFunction(int[] state, Action action) {
-		int x = state[0];
-		int y = state[1];
-		double[] transition = getTransitionProbabilities();
-		Action[] actions = new Action[] { action, Action.nextAction(action), Action.previousAction(action),
-				Action.backAction(action) };
-		double sum = 0;
-		for (int i = 0; i < actions.length; i++) {
-			int dx = actions[i].GetDX();
-			int dy = actions[i].GetDY();
-			if (invalidAction(x, y, actions[i])) {
-				Field field = MDP.getField(x, y);
-				sum += transition[i] * (getReward(field) + GAMMA * currentStates[x][y]);
-			} else {
-				Field field = MDP.getField(x + dx, y + dy);
-				sum += transition[i] * (getReward(field) + GAMMA * currentStates[x + dx][y + dy]);
-			}
-		}
-		return sum;
-	}
-
-	/**
-	 * Note: pNoStep is not used in this function, because the agent always moves!
-	 * 
-	 * @param isDeterministic
-	 * @return
-	 */
-	private double[] getTransitionProbabilities() {
-		double stepProb = TRANSITION_PROBABILITIES[0];
-		double sideStepProb = TRANSITION_PROBABILITIES[1];
-		double backStepProb = TRANSITION_PROBABILITIES[2];
-		return IS_DETERMINISTIC ? new double[] { 1, 0, 0, 0 }
-				: new double[] { stepProb, sideStepProb / 2, sideStepProb / 2, backStepProb };
-	}
-
-	/**
-	 * checks if an action is valid
-	 * 
-	 * @param x      x coordinate
-	 * @param y      y coordinate
-	 * @param action action
-	 * @return true if action cannot be performed
-	 */
-	private boolean invalidAction(int x, int y, Action action) {
-		int dx = action.GetDX();
-		int dy = action.GetDY();
-		return (y + dy < 0 || y + dy >= HEIGHT) || (x + dx < 0 || x + dx >= WIDTH)
-				|| (MDP.getField(x + dx, y + dy) == Field.OBSTACLE);
-	}
-
-	/**
-	 * Gets the reward of the state.
-	 *
-	 * @param field
-	 * @return reward
-	 */
-	private double getReward(Field field) {
-		switch (field) {
-		case REWARD:
-			return POSREWARD;
-		case NEGREWARD:
-			return NEGREWARD;
-		case EMPTY:
-			return NOREWARD;
-		default:
-			return 0;
-		}
+	public CompiledPolicy compilePolicy(boolean packed) {
+		return CompiledPolicy.fromActions(greedyPolicy(), WIDTH, HEIGHT, packed);
 	}
 
 	/**
@@ -223,7 +652,7 @@ public class ValueIteration {
 		for (int row = HEIGHT - 1; row >= 0; row--) {
 			string.append("| ");
 			for (int column = 0; column < WIDTH; column++) {
-				string.append(String.format("%-20s", currentStates[column][row]));
+				string.append(String.format("%-20s", currentStates.get(MDP.getStateId(column, row))));
 				string.append(" | ");
 			}
 			string.append("\n");
@@ -0,0 +1,71 @@
+package nl.ru.ai.KasperAndDennis.reinforcement;
+
+/**
+ * Table of values for every state (id), the storage the planners back their values up in.
+ * DoubleValueTable keeps them on the heap, MappedValueTable in a memory-mapped file.
+ *
+ * @author Dennis den Hollander (s4776658) Kasper Karelse (s4794443)
+ */
+public abstract class ValueTable {
+
+	protected final int numStates;
+
+	protected ValueTable(int numStates) {
+		this.numStates = numStates;
+	}
+
+	/**
+	 * @return the value of the given state
+	 */
+	public abstract double get(int state);
+
+	/**
+	 * Sets the value of the given state
+	 */
+	public abstract void set(int state, double value);
+
+	/**
+	 * Overwrites the values with the given ones
+	 *
+	 * @param source the value of every state, indexed by state id
+	 */
+	public void copyFrom(double[] source) {
+		if (source.length != numStates) {
+			System.err.println("ERROR:ValueTable:copyFrom: expected " + numStates + " values.");
+			return;
+		}
+		for (int state = 0; state < numStates; state++) {
+			set(state, source[state]);
+		}
+	}
+
+	/**
+	 * Overwrites the values with those of the given table
+	 *
+	 * @param source a table with the same number of states
+	 */
+	public void copyFrom(ValueTable source) {
+		if (source.numStates != numStates) {
+			System.err.println("ERROR:ValueTable:copyFrom: expected " + numStates + " values.");
+			return;
+		}
+		for (int state = 0; state < numStates; state++) {
+			set(state, source.get(state));
+		}
+	}
+
+	/**
+	 * @return the values as an array on the heap, indexed by state id
+	 */
+	public double[] toArray() {
+		double[] array = new double[numStates];
+		for (int state = 0; state < numStates; state++) {
+			array[state] = get(state);
+		}
+		return array;
+	}
+
+	public int getNumStates() {
+		return numStates;
+	}
+}
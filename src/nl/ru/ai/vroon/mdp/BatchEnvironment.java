@@ -0,0 +1,241 @@
+package nl.ru.ai.vroon.mdp;
+
+/**
+ * Simulates N agents at once in one shared landscape, with the dynamics of a MarkovDecisionProblem.
+ * 
+ * The positions of the agents are kept in a primitive array and step() advances all of them with one call,
+ * writing the results into arrays the caller allocates once. An agent that reaches an end state is
+ * restarted automatically, so the batch never has to be reset by hand.
+ * 
+ * Like a HeadlessEnvironment it copies the MDP when it is made and does not draw anything.
+ * An instance is not thread-safe: use one batch per thread.
+ * @author Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
+ *
+ */
+public class BatchEnvironment {
+
+	private static final byte REWARD = (byte) Field.REWARD.ordinal(),
+							  NEGREWARD = (byte) Field.NEGREWARD.ordinal(),
+							  EMPTY = (byte) Field.EMPTY.ordinal();
+	private static final Action[] ACTIONS = Action.values();
+	// The action ordinals each action can be (mis)interpreted as:
+	private static final int[] PREVIOUS = new int[ACTIONS.length],
+							   NEXT = new int[ACTIONS.length],
+							   BACK = new int[ACTIONS.length];
+	static {
+		for (Action action : ACTIONS) {
+			PREVIOUS[action.ordinal()] = Action.previousAction(action).ordinal();
+			NEXT[action.ordinal()] = Action.nextAction(action).ordinal();
+			BACK[action.ordinal()] = Action.backAction(action).ordinal();
+		}
+	}
+	
+	private final byte[] landscape;
+	private final SuccessorIndex successors;
+	private final int width;
+	private final boolean deterministic;
+	// Cumulative probabilities of performing the action, the previous sidestep, the next sidestep and the backstep:
+	private final double pPerform, pPrevious, pNext, pBack;
+	// The reward of entering each kind of field, indexed by Field ordinal:
+	private final double[] fieldRewards = new double[Field.values().length];
+	// The reward of each state id, or null to use fieldRewards (the reward map of the MDP):
+	private final double[] rewardMap;
+	
+	private final int numAgents;
+	private final int[] positions;
+	private final int[] episodeSteps;
+	private int initPosition;
+	private boolean randomStarts = false;
+	// The state ids of the empty fields, the random start states (made when random starts are first enabled):
+	private int[] emptyStates = null;
+	private SplitMixRandom rand;
+	
+	/**
+	 * Constructor.
+	 * Copies the landscape, the agent's initial state and the dynamics of the given MDP (its reward map is shared),
+	 * and puts numAgents agents in the initial state.
+	 * @param mdp
+	 * @param numAgents
+	 */
+	public BatchEnvironment(MarkovDecisionProblem mdp, int numAgents) {
+		width = mdp.getWidth();
+		landscape = mdp.getLandscape();
+		successors = mdp.getSuccessorIndex().copy();
+		deterministic = mdp.isDeterministic();
+		double[] probs = mdp.getTransitionProbs();
+		pPerform = probs[0];
+		pPrevious = probs[0] + probs[1] / 2;
+		pNext = probs[0] + probs[1];
+		pBack = probs[0] + probs[1] + probs[2];
+		double[] rewards = mdp.getRewardVals();
+		fieldRewards[REWARD] = rewards[0];
+		fieldRewards[NEGREWARD] = rewards[1];
+		fieldRewards[EMPTY] = rewards[2];
+		rewardMap = mdp.getRewardMap();
+		initPosition = mdp.getInitialState();
+		rand = mdp.getRandom().split();
+		this.numAgents = numAgents;
+		positions = new int[numAgents];
+		episodeSteps = new int[numAgents];
+		reset();
+	}
+	
+	/**
+	 * Restarts every agent
+	 */
+	public void reset() {
+		for (int agent = 0; agent < numAgents; agent++)
+			restart(agent);
+	}
+	
+	/**
+	 * Performs one action for every agent.
+	 * 
+	 * An agent that ends up in an end state gets its reward, is reported as terminated with that end state
+	 * as next state, and is then restarted: its next action starts a new episode (see getState).
+	 * @param actions, the action ordinal each agent intends to perform
+	 * @param rewards, receives the reward each agent gains at its new state
+	 * @param nextStates, receives the state id each agent ends up in
+	 * @param terminated, receives whether each agent has reached an end state (and was restarted)
+	 */
+	public void step(int[] actions, double[] rewards, int[] nextStates, boolean[] terminated) {
+		for (int agent = 0; agent < numAgents; agent++) {
+			int action = actions[agent];
+			int position = positions[agent];
+			if (deterministic)
+				position = move(position, action);
+			else {
+				double prob = rand.nextDouble();
+				if (prob < pPerform)
+					position = move(position, action);
+				else if (prob < pPrevious)
+					position = move(position, PREVIOUS[action]);
+				else if (prob < pNext)
+					position = move(position, NEXT[action]);
+				else if (prob < pBack)
+					position = move(position, BACK[action]);
+				// else: do nothing (i.e. stay where you are)
+			}
+			byte field = landscape[position];
+			rewards[agent] = (rewardMap != null) ? rewardMap[position] : fieldRewards[field];
+			nextStates[agent] = position;
+			episodeSteps[agent]++;
+			boolean done = field == REWARD || field == NEGREWARD;
+			terminated[agent] = done;
+			if (done)
+				restart(agent);
+			else
+				positions[agent] = position;
+		}
+	}
+	
+	/**
+	 * Returns the state the agent ends up in when it performs the given action as is from the given state
+	 * @param state
+	 * @param action, action ordinal
+	 * @return the neighbouring state id, or state if the move is blocked
+	 */
+	private int move(int state, int action) {
+		return successors.get(state, action);
+	}
+	
+	/**
+	 * Puts the agent in its start state: the initial state, or a random state that is not an obstacle
+	 * or end state if random starts are enabled
+	 * @param agent
+	 */
+	private void restart(int agent) {
+		episodeSteps[agent] = 0;
+		if (!randomStarts) {
+			positions[agent] = initPosition;
+			return;
+		}
+		positions[agent] = emptyStates[rand.nextInt(emptyStates.length)];
+	}
+	
+	/**
+	 * Returns the current state of the given agent
+	 * (after an automatic restart this is its new start state)
+	 * @param agent
+	 * @return
+	 */
+	public int getState(int agent) {
+		return positions[agent];
+	}
+	
+	/**
+	 * Copies the current state of every agent into the given array
+	 * @param states, of length getNumAgents()
+	 */
+	public void copyStates(int[] states) {
+		System.arraycopy(positions, 0, states, 0, numAgents);
+	}
+	
+	/**
+	 * Returns the number of steps the given agent has taken in its current episode
+	 * @param agent
+	 * @return
+	 */
+	public int getEpisodeSteps(int agent) {
+		return episodeSteps[agent];
+	}
+	
+	/**
+	 * Enables/disables restarting agents in a random empty state instead of the initial state.
+	 * Does not move the agents that are currently on their way.
+	 * Random starts cannot be enabled in a landscape without empty fields.
+	 * @param randomStarts
+	 */
+	public void setRandomStarts(boolean randomStarts) {
+		if (randomStarts && emptyStates == null) {
+			int count = 0;
+			for (byte field : landscape) {
+				if (field == EMPTY)
+					count++;
+			}
+			if (count == 0) {
+				System.err.println("ERROR:BatchEnvironment:setRandomStarts: the landscape has no empty fields to start in.");
+				return;
+			}
+			emptyStates = new int[count];
+			count = 0;
+			for (int state = 0; state < landscape.length; state++) {
+				if (landscape[state] == EMPTY)
+					emptyStates[count++] = state;
+			}
+		}
+		this.randomStarts = randomStarts;
+	}
+	
+	/**
+	 * Sets the state id agents are restarted in (if random starts are disabled)
+	 * @param state
+	 */
+	public void setInitialState(int state) {
+		initPosition = state;
+	}
+	
+	/**
+	 * Seeds the random number generator used for the stochastic actions and random starts
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		rand = new SplitMixRandom(seed);
+	}
+	
+	public int getNumAgents() {
+		return numAgents;
+	}
+	
+	public int getNumStates() {
+		return landscape.length;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return landscape.length / width;
+	}
+}
@@ -1,19 +1,31 @@
 package nl.ru.ai.vroon.mdp;
 
-import java.awt.Container;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
 import javax.swing.JFrame;
+import javax.swing.Timer;
 
 /**
  * Draws the given MDP.
+ * 
+ * The frame has one DrawPanel for its whole life. It is either repainted right away (drawContent) or, when
+ * drawing asynchronously, snapshots are published to the panel and repainted on the event dispatch thread at a
+ * fixed frame rate: publishing never blocks, and snapshots published between two frames are coalesced into
+ * the newest one.
  * @author Sjoerd Lagarde + some adaptations by Jered Vroon
  *
  */
 public class DrawFrame extends JFrame {
 
 	private static final long serialVersionUID = 1L;
+	// Cells are at most CELL_SIZE pixels, and large landscapes are shrunk to fit in MAX_SIZE pixels:
+	private static final int CELL_SIZE = 50, MAX_SIZE = 1000;
 	private int width = 750;
 	private int height = 800;
 	private MarkovDecisionProblem mdp;
+	private final DrawPanel panel;
+	private Timer timer = null;
 
 	/**
 	 * Constructor.
@@ -21,21 +33,62 @@ public class DrawFrame extends JFrame {
 	 */
 	public DrawFrame(MarkovDecisionProblem mdp) {
 		this.mdp = mdp;
-		width = mdp.getWidth() * 50;
-		height = mdp.getHeight() * 50;
+		int cellSize = Math.max(1, Math.min(CELL_SIZE, MAX_SIZE / Math.max(mdp.getWidth(), mdp.getHeight())));
+		width = mdp.getWidth() * cellSize;
+		height = mdp.getHeight() * cellSize;
 		setSize(width+20, height+100);
 		setTitle("MDP Visualization");
 		
+		panel = new DrawPanel(mdp, width, height);
+		getContentPane().add(panel);
 		drawContent();
 	}
 	
 	/**
-	 * Adds the content to the frame:
+	 * Shows the current state of the MDP (on the calling thread's view of it)
 	 */
 	public void drawContent() {
-		DrawPanel panel = new DrawPanel(mdp, width, height);
-		Container contentPane = getContentPane();
-		contentPane.add(panel);		
+		panel.setSnapshot(mdp.takeSnapshot());
+		panel.repaint();
+	}
+	
+	/**
+	 * Hands a snapshot to the drawing thread; it replaces any snapshot that has not been drawn yet.
+	 * Safe to call from any thread, and never blocks.
+	 * @param snapshot
+	 */
+	public void publish(MDPSnapshot snapshot) {
+		panel.setSnapshot(snapshot);
+	}
+	
+	/**
+	 * Starts drawing the published snapshots at the given frame rate, on the event dispatch thread
+	 * @param framesPerSecond
+	 */
+	public void startDrawing(int framesPerSecond) {
+		stopDrawing();
+		timer = new Timer(1000 / framesPerSecond, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if (panel.hasPendingSnapshot())
+					panel.repaint();
+			}
+		});
+		timer.start();
+	}
+	
+	/**
+	 * Stops drawing the published snapshots
+	 */
+	public void stopDrawing() {
+		if (timer != null) {
+			timer.stop();
+			timer = null;
+		}
+	}
+	
+	public DrawPanel getPanel() {
+		return panel;
 	}
 	
 }
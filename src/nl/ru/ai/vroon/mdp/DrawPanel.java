@@ -3,6 +3,7 @@ package nl.ru.ai.vroon.mdp;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JPanel;
 
@@ -17,6 +18,12 @@ public class DrawPanel extends JPanel {
 	private int screenWidth;
 	private int screenHeight;
 	private MarkovDecisionProblem mdp;
+	// The landscape with the overlay; only used on the thread that paints
+	private HeatmapImage heatmap = null;
+	// What is drawn; only used on the thread that paints
+	private MDPSnapshot snapshot = null;
+	// The snapshot to draw next, set from any thread (see DrawFrame)
+	private final AtomicReference<MDPSnapshot> pending = new AtomicReference<MDPSnapshot>();
 	
 	/**
 	 * Constructor
@@ -30,40 +37,61 @@ public class DrawPanel extends JPanel {
 		this.screenHeight = screenHeight;		
 	}
 	
+	/**
+	 * Sets the snapshot drawn by the next repaint. A snapshot that has not been drawn yet is replaced, but the
+	 * states it changed are still redrawn.
+	 * @param snapshot
+	 */
+	public void setSnapshot(MDPSnapshot snapshot) {
+		MDPSnapshot undrawn;
+		do {
+			undrawn = pending.get();
+		} while (!pending.compareAndSet(undrawn, snapshot.withChangesOf(undrawn)));
+	}
+	
+	/**
+	 * @return true if a snapshot was set that has not been drawn yet
+	 */
+	public boolean hasPendingSnapshot() {
+		return pending.get() != null;
+	}
+	
 	@Override
 	public void paintComponent(Graphics g) {
 		setBackground(new Color(255, 255, 255)); 	// White background
 		super.paintComponent(g);
 		
-		int stepSizeX = screenWidth/mdp.getWidth();
-		int stepSizeY = screenHeight/mdp.getHeight();
+		MDPSnapshot next = pending.getAndSet(null);
+		if (next != null)
+			snapshot = next;
+		if (snapshot == null)
+			return;
+		int stepSizeX = screenWidth/snapshot.width;
+		int stepSizeY = screenHeight/snapshot.height;
 		
 		Graphics2D g2 = (Graphics2D)g;
-		for ( int i=0; i<mdp.getWidth(); i++ ) {
-			for ( int j=0; j<mdp.getHeight(); j++ ) {				
-				Field f = mdp.getField(i, j);
-
-				g2.setPaint(Color.WHITE);
-				if ( f.equals(Field.REWARD) ) {
-					g2.setPaint(Color.GREEN);
-				} else if ( f.equals(Field.NEGREWARD) ) {
-					g2.setPaint(Color.RED);
-				} else if ( f.equals(Field.OBSTACLE) ) {
-					g2.setPaint(Color.GRAY);
-				} 
-				g2.fillRect(stepSizeX*i, screenHeight - stepSizeY*(j+1), stepSizeX,stepSizeY);
-				
-				if ( mdp.getStateXPosition() == i && mdp.getStateYPosition() == j ) {
-					g2.setPaint(Color.BLUE);
-					g2.fillOval(stepSizeX*i+stepSizeX/4, screenHeight - stepSizeY*(j+1)+stepSizeY/4, stepSizeX/2, stepSizeY/2);
-				}
-				
-				g2.setPaint(Color.BLACK);
-				g2.drawRect(stepSizeX*i, screenHeight - stepSizeY*(j+1), stepSizeX,stepSizeY);
-			}			
+		// The landscape and overlay are one cached image, of which only the changed cells are redrawn:
+		if ( heatmap == null || heatmap.getWidth() != snapshot.width || heatmap.getHeight() != snapshot.height ) {
+			heatmap = new HeatmapImage(snapshot.width, snapshot.height, stepSizeX, stepSizeY);
+			heatmap.update(snapshot);
+		} else if ( next != null ) {
+			heatmap.update(next);
+		}
+		g2.drawImage(heatmap.getImage(), 0, screenHeight - stepSizeY*snapshot.height, null);
+		
+		int i = snapshot.position % snapshot.width;
+		int j = snapshot.position / snapshot.width;
+		g2.setPaint(Color.BLUE);
+		g2.fillOval(stepSizeX*i+stepSizeX/4, screenHeight - stepSizeY*(j+1)+stepSizeY/4, Math.max(1, stepSizeX/2), Math.max(1, stepSizeY/2));
+		
+		// The values as text, if there is room for them:
+		g2.setPaint(Color.BLACK);
+		if ( snapshot.values != null && stepSizeX >= 40 && stepSizeY >= 30 ) {
+			for ( int state=0; state<snapshot.values.length; state++ )
+				g2.drawString(String.format("%.2f", snapshot.values[state]), stepSizeX*(state % snapshot.width)+3, screenHeight - stepSizeY*(state / snapshot.width + 1) + 13);
 		}
-		g2.drawString("Reward: \t\t"+mdp.getReward(), 30, screenHeight+25);
-		g2.drawString("#Actions: \t\t"+mdp.getActionsCounter(), 30, screenHeight+40);
+		g2.drawString("Reward: \t\t"+snapshot.reward, 30, screenHeight+25);
+		g2.drawString("#Actions: \t\t"+snapshot.actionsCounter, 30, screenHeight+40);
 	}
 
 }
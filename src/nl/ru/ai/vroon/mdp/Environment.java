@@ -0,0 +1,79 @@
+package nl.ru.ai.vroon.mdp;
+
+/**
+ * A grid world an agent can act in, with grid positions identified by their state id (x + y*width).
+ * @author Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
+ *
+ */
+public interface Environment {
+
+	/**
+	 * Performs the given action (possibly stochastically) and returns the reward that action yielded.
+	 * @param action, the Action that is _intended_ to be executed
+	 * @return the reward the agent gains at its new state
+	 */
+	double performAction(Action action);
+
+	/**
+	 * Sets the agent back to its initial state and sets terminated to false.
+	 */
+	void restart();
+
+	/**
+	 * Returns if a final state has been reached
+	 * @return
+	 */
+	boolean isTerminated();
+
+	/**
+	 * Returns the id of the current state
+	 * @return
+	 */
+	int getState();
+
+	/**
+	 * Sets the state id the agent starts in after a restart()
+	 * @param state
+	 */
+	void setInitialState(int state);
+
+	/**
+	 * Returns the state id the agent starts in after a restart()
+	 * @return
+	 */
+	int getInitialState();
+
+	/**
+	 * Returns the field with the given state id
+	 * @param state
+	 * @return
+	 */
+	Field getField(int state);
+
+	/**
+	 * Returns the state id of the given x and y coordinates
+	 * @param xpos
+	 * @param ypos
+	 * @return
+	 */
+	int getStateId(int xpos, int ypos);
+
+	int getNumStates();
+
+	int getWidth();
+
+	int getHeight();
+
+	/**
+	 * Returns the random number generator used for doing the Actions stochastically
+	 * @return
+	 */
+	SplitMixRandom getRandom();
+
+	/**
+	 * Sets the random number generator used for doing the Actions stochastically
+	 * (for instance one restored from a checkpoint with SplitMixRandom.fromState).
+	 * @param rand
+	 */
+	void setRandom(SplitMixRandom rand);
+}
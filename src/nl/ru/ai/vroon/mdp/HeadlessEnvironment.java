@@ -0,0 +1,204 @@
+package nl.ru.ai.vroon.mdp;
+
+/**
+ * Simulator for the dynamics of a MarkovDecisionProblem without any display:
+ * no drawing, no waiting and no display settings to check on every step.
+ * Does not use any Swing or AWT classes, so batch training never loads them.
+ * 
+ * The landscape, probabilities and rewards are copied when the environment is made, so later
+ * changes to the MarkovDecisionProblem are not seen. The random number generator is split off that of
+ * the MarkovDecisionProblem, so a seeded MDP gives reproducible environments.
+ * @author Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
+ *
+ */
+public class HeadlessEnvironment implements Environment {
+
+	private static final Field[] FIELDS = Field.values();
+	private static final byte REWARD = (byte) Field.REWARD.ordinal(),
+							  NEGREWARD = (byte) Field.NEGREWARD.ordinal(),
+							  EMPTY = (byte) Field.EMPTY.ordinal();
+	
+	private final byte[] landscape;
+	private final SuccessorIndex successors;
+	private final int width, height;
+	private final boolean deterministic;
+	// Cumulative probabilities of performing the action, the previous sidestep, the next sidestep and the backstep:
+	private final double pPerform, pPrevious, pNext, pBack;
+	// The reward of entering each kind of field, indexed by Field ordinal, and the reward map of the MDP (or null):
+	private final double[] fieldRewards = new double[FIELDS.length];
+	private final double[] rewardMap;
+	
+	private SplitMixRandom rand;
+	private int position;
+	private int initPosition;
+	private boolean terminated = false;
+	private int actionsCounter = 0;
+	
+	/**
+	 * Constructor.
+	 * Copies the landscape, the agent's initial state and the dynamics of the given MDP (its reward map is shared).
+	 * @param mdp
+	 */
+	public HeadlessEnvironment(MarkovDecisionProblem mdp) {
+		width = mdp.getWidth();
+		height = mdp.getHeight();
+		landscape = mdp.getLandscape();
+		successors = mdp.getSuccessorIndex().copy();
+		deterministic = mdp.isDeterministic();
+		double[] probs = mdp.getTransitionProbs();
+		pPerform = probs[0];
+		pPrevious = probs[0] + probs[1] / 2;
+		pNext = probs[0] + probs[1];
+		pBack = probs[0] + probs[1] + probs[2];
+		double[] rewards = mdp.getRewardVals();
+		fieldRewards[REWARD] = rewards[0];
+		fieldRewards[NEGREWARD] = rewards[1];
+		fieldRewards[EMPTY] = rewards[2];
+		rewardMap = mdp.getRewardMap();
+		initPosition = mdp.getInitialState();
+		position = initPosition;
+		rand = mdp.getRandom().split();
+	}
+	
+	/**
+	 * Performs the given action and returns the reward that action yielded,
+	 * in the same way as MarkovDecisionProblem.performAction.
+	 * @param action, the Action that is _intended_ to be executed
+	 * @return the reward the agent gains at its new state
+	 */
+	@Override
+	public double performAction(Action action) {
+		if (deterministic)
+			position = move(position, action);
+		else {
+			double prob = rand.nextDouble();
+			if (prob < pPerform)
+				position = move(position, action);
+			else if (prob < pPrevious)
+				position = move(position, Action.previousAction(action));
+			else if (prob < pNext)
+				position = move(position, Action.nextAction(action));
+			else if (prob < pBack)
+				position = move(position, Action.backAction(action));
+			// else: do nothing (i.e. stay where you are)
+		}
+		actionsCounter++;
+		return getReward();
+	}
+	
+	/**
+	 * Returns the state the agent ends up in when it performs the given action as is from the given state
+	 * @param state
+	 * @param action
+	 * @return the neighbouring state id, or state if the move is blocked
+	 */
+	private int move(int state, Action action) {
+		return successors.get(state, action);
+	}
+	
+	/**
+	 * Returns the reward the field in which the agent currently is yields
+	 * and terminates if it is an end state
+	 * @return
+	 */
+	private double getReward() {
+		if (terminated) return 0;
+		byte field = landscape[position];
+		if (field == REWARD || field == NEGREWARD)
+			terminated = true;
+		else if (field != EMPTY)
+			return 0;
+		return (rewardMap != null) ? rewardMap[position] : fieldRewards[field];
+	}
+	
+	/**
+	 * Seeds the random number generator used for doing the Actions stochastically
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.rand = new SplitMixRandom(seed);
+	}
+	
+	/**
+	 * Sets the random number generator used for doing the Actions stochastically.
+	 * It should not be shared with another thread.
+	 * @param rand
+	 */
+	@Override
+	public void setRandom(SplitMixRandom rand) {
+		this.rand = rand;
+	}
+	
+	@Override
+	public SplitMixRandom getRandom() {
+		return rand;
+	}
+	
+	@Override
+	public void restart() {
+		terminated = false;
+		position = initPosition;
+		actionsCounter = 0;
+	}
+	
+	@Override
+	public boolean isTerminated() {
+		return terminated;
+	}
+	
+	@Override
+	public int getState() {
+		return position;
+	}
+	
+	/**
+	 * Moves the agent to the given state id
+	 * @param state
+	 */
+	public void setState(int state) {
+		position = state;
+	}
+	
+	@Override
+	public void setInitialState(int state) {
+		initPosition = state;
+	}
+	
+	@Override
+	public int getInitialState() {
+		return initPosition;
+	}
+	
+	@Override
+	public Field getField(int state) {
+		return FIELDS[landscape[state]];
+	}
+	
+	@Override
+	public int getStateId(int xpos, int ypos) {
+		return xpos + ypos * width;
+	}
+	
+	@Override
+	public int getNumStates() {
+		return landscape.length;
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the number of actions that has been performed since the last (re)start.
+	 * @return
+	 */
+	public int getActionsCounter() {
+		return actionsCounter;
+	}
+}
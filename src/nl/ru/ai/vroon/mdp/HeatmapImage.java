@@ -0,0 +1,171 @@
+package nl.ru.ai.vroon.mdp;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Off-screen image of the landscape with the value overlay as a heatmap and the policy overlay as arrows,
+ * drawn straight into the pixels of a BufferedImage so it can be shown with a single drawImage.
+ * 
+ * An update only looks at the states the snapshot lists as changed, and redraws those whose colour or arrow
+ * differs, so a frame costs the pixels of the changed cells, even on a 1000x1000 map. All states are looked at
+ * for the first update, for a snapshot that does not list its changes, and when the value scale changes.
+ * Empty cells are white when there is no value overlay, and otherwise shade from red (the most negative value)
+ * through white (0) to green (the most positive value).
+ * @author Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
+ *
+ */
+public class HeatmapImage {
+	
+	private static final int WHITE = 0xFFFFFF, BLACK = 0x000000, GREEN = 0x00FF00, RED = 0xFF0000,
+							 GRAY = 0x808080;
+	private static final byte NO_ARROW = -1;
+	// Smallest cell (in pixels) that gets a border and an arrow:
+	private static final int MIN_BORDER = 4, MIN_ARROW = 8;
+	private static final Field[] FIELDS = Field.values();
+	private static final Action[] ACTIONS = Action.values();
+	
+	private final int width, height, cellWidth, cellHeight;
+	private final BufferedImage image;
+	private final int[] pixels;
+	private final int imageWidth;
+	// What each cell shows now:
+	private final int[] cellColours;
+	private final byte[] cellArrows;
+	// The value scale the colours were computed with
+	private double scale = 0;
+	private boolean drawn = false;
+	
+	/**
+	 * Creates the image of a landscape of the given size
+	 * @param width, in cells
+	 * @param height, in cells
+	 * @param cellWidth, in pixels
+	 * @param cellHeight, in pixels
+	 */
+	public HeatmapImage(int width, int height, int cellWidth, int cellHeight) {
+		this.width = width;
+		this.height = height;
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+		this.imageWidth = width * cellWidth;
+		this.image = new BufferedImage(imageWidth, height * cellHeight, BufferedImage.TYPE_INT_RGB);
+		this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		this.cellColours = new int[width * height];
+		this.cellArrows = new byte[width * height];
+	}
+	
+	/**
+	 * Redraws the cells that look different in the given snapshot
+	 * @param snapshot, of a landscape of the size of this image
+	 * @return the number of cells redrawn
+	 */
+	public int update(MDPSnapshot snapshot) {
+		// Every shade depends on the scale
+		boolean all = !drawn || snapshot.changed == null || snapshot.valueScale != scale;
+		scale = snapshot.valueScale;
+		boolean arrows = snapshot.policy != null && cellWidth >= MIN_ARROW && cellHeight >= MIN_ARROW;
+		int redrawn = 0;
+		if (all) {
+			for (int state = 0; state < cellColours.length; state++)
+				redrawn += update(snapshot, state, arrows);
+		} else {
+			for (int state : snapshot.changed)
+				redrawn += update(snapshot, state, arrows);
+		}
+		drawn = true;
+		return redrawn;
+	}
+	
+	/**
+	 * Redraws the cell of the given state if it looks different in the snapshot
+	 * @return 1 if the cell was redrawn, otherwise 0
+	 */
+	private int update(MDPSnapshot snapshot, int state, boolean arrows) {
+		Field field = FIELDS[snapshot.landscape[state]];
+		int colour = colour(field, (snapshot.values == null) ? 0 : snapshot.values[state], scale);
+		byte arrow = (arrows && field == Field.EMPTY && snapshot.policy[state] >= 0) ? snapshot.policy[state] : NO_ARROW;
+		if (drawn && colour == cellColours[state] && arrow == cellArrows[state])
+			return 0;
+		cellColours[state] = colour;
+		cellArrows[state] = arrow;
+		drawCell(state);
+		return 1;
+	}
+	
+	private static int colour(Field field, double value, double scale) {
+		switch (field) {
+		case REWARD:
+			return GREEN;
+		case NEGREWARD:
+			return RED;
+		case OBSTACLE:
+			return GRAY;
+		default:
+			if (scale == 0 || value == 0)
+				return WHITE;
+			// 0 is white, the largest absolute value is fully green (positive) or red (negative)
+			int shade = 255 - (int) (Math.min(1, Math.abs(value) / scale) * 255);
+			return (value > 0) ? (shade << 16) | (255 << 8) | shade : (255 << 16) | (shade << 8) | shade;
+		}
+	}
+	
+	/**
+	 * Draws the cell of the given state: its colour, border and arrow
+	 */
+	private void drawCell(int state) {
+		int x0 = (state % width) * cellWidth;
+		// Row 0 is at the bottom of the image
+		int y0 = (height - 1 - state / width) * cellHeight;
+		int colour = cellColours[state];
+		boolean border = cellWidth >= MIN_BORDER && cellHeight >= MIN_BORDER;
+		for (int y = 0; y < cellHeight; y++) {
+			int row = (y0 + y) * imageWidth + x0;
+			boolean edge = border && (y == 0 || y == cellHeight - 1);
+			for (int x = 0; x < cellWidth; x++)
+				pixels[row + x] = (edge || (border && (x == 0 || x == cellWidth - 1))) ? BLACK : colour;
+		}
+		if (cellArrows[state] != NO_ARROW)
+			drawArrow(x0, y0, ACTIONS[cellArrows[state]]);
+	}
+	
+	/**
+	 * Draws an arrow from the centre of the cell in the direction of the action
+	 */
+	private void drawArrow(int x0, int y0, Action action) {
+		int cx = x0 + cellWidth / 2, cy = y0 + cellHeight / 2;
+		// The image's y axis points down, the landscape's up
+		int dx = action.GetDX(), dy = -action.GetDY();
+		int length = Math.min(cellWidth, cellHeight) * 3 / 8;
+		for (int i = -length; i <= length; i++)
+			setPixel(cx + dx * i, cy + dy * i);
+		// The head: two short lines back from the tip, at right angles to each other
+		int tipX = cx + dx * length, tipY = cy + dy * length;
+		for (int i = 1; i <= length / 2; i++) {
+			setPixel(tipX - dx * i + dy * i, tipY - dy * i + dx * i);
+			setPixel(tipX - dx * i - dy * i, tipY - dy * i - dx * i);
+		}
+	}
+	
+	private void setPixel(int x, int y) {
+		pixels[y * imageWidth + x] = BLACK;
+	}
+	
+	public BufferedImage getImage() {
+		return image;
+	}
+	
+	/**
+	 * @return the width of the landscape, in cells
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * @return the height of the landscape, in cells
+	 */
+	public int getHeight() {
+		return height;
+	}
+}
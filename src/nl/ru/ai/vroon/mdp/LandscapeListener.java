@@ -0,0 +1,18 @@
+package nl.ru.ai.vroon.mdp;
+
+/**
+ * Gets notified when a field of the landscape of a MarkovDecisionProblem changes,
+ * for instance to repair a plan of the old landscape.
+ * @author Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
+ *
+ */
+public interface LandscapeListener {
+
+	/**
+	 * Called after the field with the given state id has changed
+	 * @param state, x + y*width
+	 * @param oldField, the field before the change
+	 * @param newField, the field after the change
+	 */
+	void fieldChanged(int state, Field oldField, Field newField);
+}
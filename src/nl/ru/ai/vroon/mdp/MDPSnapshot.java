@@ -0,0 +1,81 @@
+package nl.ru.ai.vroon.mdp;
+
+import java.util.Arrays;
+
+/**
+ * An immutable picture of a MarkovDecisionProblem at one moment, for drawing it on another thread:
+ * the landscape, the agent and optionally a value and policy overlay.
+ * The arrays are shared between snapshots and must not be modified.
+ * @author Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
+ *
+ */
+public final class MDPSnapshot {
+	
+	public final int width, height;
+	// The Field ordinal of every state id
+	public final byte[] landscape;
+	// The state id of the agent
+	public final int position;
+	public final double reward;
+	public final int actionsCounter;
+	// The value of every state id, or null
+	public final double[] values;
+	// The largest absolute value in values (0 without values)
+	public final double valueScale;
+	// The action ordinal of every state id (negative for none), or null
+	public final byte[] policy;
+	// The state ids whose field or overlay changed since the previous drawn snapshot, or null if any may have
+	public final int[] changed;
+	
+	/**
+	 * Creates a snapshot in which any state may have changed
+	 */
+	public MDPSnapshot(int width, int height, byte[] landscape, int position, double reward, int actionsCounter,
+			double[] values, byte[] policy) {
+		this(width, height, landscape, position, reward, actionsCounter, values, scale(values), policy, null);
+	}
+	
+	public MDPSnapshot(int width, int height, byte[] landscape, int position, double reward, int actionsCounter,
+			double[] values, double valueScale, byte[] policy, int[] changed) {
+		this.width = width;
+		this.height = height;
+		this.landscape = landscape;
+		this.position = position;
+		this.reward = reward;
+		this.actionsCounter = actionsCounter;
+		this.values = values;
+		this.valueScale = valueScale;
+		this.policy = policy;
+		this.changed = changed;
+	}
+	
+	/**
+	 * Returns this snapshot with the changed states of an older snapshot added, for when the older one is
+	 * replaced before it was drawn
+	 * @param older, or null
+	 * @return
+	 */
+	MDPSnapshot withChangesOf(MDPSnapshot older) {
+		if (older == null)
+			return this;
+		int[] merged = null;
+		if (changed != null && older.changed != null && older.changed.length + changed.length <= landscape.length) {
+			merged = Arrays.copyOf(older.changed, older.changed.length + changed.length);
+			System.arraycopy(changed, 0, merged, older.changed.length, changed.length);
+		}
+		return new MDPSnapshot(width, height, landscape, position, reward, actionsCounter, values, valueScale,
+				policy, merged);
+	}
+	
+	/**
+	 * @return the largest absolute value, or 0 if values is null
+	 */
+	static double scale(double[] values) {
+		double scale = 0;
+		if (values != null) {
+			for (double value : values)
+				scale = Math.max(scale, Math.abs(value));
+		}
+		return scale;
+	}
+}
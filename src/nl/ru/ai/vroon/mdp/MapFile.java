@@ -0,0 +1,342 @@
+package nl.ru.ai.vroon.mdp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Saves and loads maps: the size, landscape, rewards (and reward map, if any), initial state and transition
+ * probabilities of an MDP.
+ *
+ * There are two formats, and load() recognises both:
+ * - text, for small maps that are written by hand: one setting per line, then the landscape with the top row first
+ *   and one character per field ('#' obstacle, '.' empty, '+' reward, '-' negative reward). Lines starting with
+ *   '#' before the landscape are comments. A reward map (see MarkovDecisionProblem.setRewardMap) may follow as
+ *   'rewardmap' and then a line of width rewards per row, again with the top row first. For example:
+ *       size 4 3
+ *       start 0 0
+ *       rewards 1 -1 -0.04
+ *       probabilities 0.8 0.2 0 0
+ *       stochastic
+ *       map
+ *       ...+
+ *       .#.-
+ *       ....
+ * - binary, for big maps: MAGIC, VERSION, width, height, initial state, deterministic, the 4 probabilities and
+ *   3 rewards, then the landscape in row-major order as runs of (Field ordinal, varint length), and finally a
+ *   flag saying if there is a reward map, which is stored in the same order as runs of (reward, varint length).
+ *   Version 1 maps have no reward map (and no flag).
+ * A loaded landscape is handed to the MDP as a whole, so it is not set (and redrawn) field by field; a binary map
+ * is read through a memory mapping and each run is filled at once.
+ * @author Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
+ *
+ */
+public class MapFile {
+
+	private static final int MAGIC = 0x4D44504D; // "MDPM"
+	private static final int VERSION = 2;
+	private static final String SYMBOLS = "#.+-";
+	private static final Field[] FIELDS = Field.values();
+
+	/**
+	 * Loads a map saved in either format. The MDP does not show its progress; call setShowProgress to draw it.
+	 * @param path
+	 * @return the MDP, with the agent in the initial state
+	 * @throws IOException if the file cannot be read or is not a map
+	 */
+	public static MarkovDecisionProblem load(String path) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			if (channel.size() >= 4) {
+				ByteBuffer magic = ByteBuffer.allocate(4);
+				channel.read(magic, 0);
+				if (magic.getInt(0) == MAGIC)
+					return loadBinary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path);
+			}
+		}
+		return loadText(path);
+	}
+
+	private static MarkovDecisionProblem loadBinary(ByteBuffer in, String path) throws IOException {
+		try {
+			in.getInt();
+			int version = in.getInt();
+			if (version != 1 && version != VERSION)
+				throw new IOException(path + " has unsupported map version " + version);
+			int width = in.getInt(), height = in.getInt(), start = in.getInt();
+			boolean deterministic = in.get() != 0;
+			double[] probabilities = { in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble() };
+			double[] rewards = { in.getDouble(), in.getDouble(), in.getDouble() };
+			checkSize(width, height, path);
+			byte[] landscape = new byte[width * height];
+			int state = 0;
+			while (state < landscape.length) {
+				byte field = in.get();
+				int length = readVarint(in);
+				if (length <= 0 || length > landscape.length - state)
+					throw new IOException(path + " has a run outside of the landscape at state " + state);
+				Arrays.fill(landscape, state, state + length, field);
+				state += length;
+			}
+			double[] rewardMap = null;
+			if (version > 1 && in.get() != 0) {
+				rewardMap = new double[landscape.length];
+				state = 0;
+				while (state < rewardMap.length) {
+					double reward = in.getDouble();
+					int length = readVarint(in);
+					if (length <= 0 || length > rewardMap.length - state)
+						throw new IOException(path + " has a run outside of the reward map at state " + state);
+					Arrays.fill(rewardMap, state, state + length, reward);
+					state += length;
+				}
+			}
+			return build(width, height, landscape, rewardMap, start, deterministic, probabilities, rewards, path);
+		} catch (BufferUnderflowException e) {
+			throw new IOException(path + " ends unexpectedly");
+		}
+	}
+
+	private static MarkovDecisionProblem loadText(String path) throws IOException {
+		int width = -1, height = -1, start = 0;
+		boolean deterministic = false;
+		double[] probabilities = { 0.8, 0.2, 0, 0 };
+		double[] rewards = { 1, -1, -0.04 };
+		byte[] landscape = null;
+		double[] rewardMap = null;
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+			int[] startXY = { 0, 0 };
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] words = line.trim().split("\\s+");
+				if (words[0].isEmpty() || words[0].startsWith("#"))
+					continue;
+				try {
+					switch (words[0]) {
+					case "size":
+						width = Integer.parseInt(words[1]);
+						height = Integer.parseInt(words[2]);
+						break;
+					case "start":
+						startXY = new int[] { Integer.parseInt(words[1]), Integer.parseInt(words[2]) };
+						break;
+					case "rewards":
+						for (int i = 0; i < rewards.length; i++)
+							rewards[i] = Double.parseDouble(words[i + 1]);
+						break;
+					case "probabilities":
+						for (int i = 0; i < probabilities.length; i++)
+							probabilities[i] = Double.parseDouble(words[i + 1]);
+						break;
+					case "deterministic":
+						deterministic = true;
+						break;
+					case "stochastic":
+						deterministic = false;
+						break;
+					case "map":
+						checkSize(width, height, path);
+						landscape = readRows(reader, width, height, path);
+						break;
+					case "rewardmap":
+						checkSize(width, height, path);
+						rewardMap = readRewards(reader, width, height, path);
+						break;
+					default:
+						throw new IOException(path + ": unknown setting '" + words[0] + "'");
+					}
+				} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+					throw new IOException(path + ": cannot read '" + line + "'");
+				}
+			}
+			if (landscape == null)
+				throw new IOException(path + " has no map");
+			start = startXY[0] + startXY[1] * width;
+		}
+		return build(width, height, landscape, rewardMap, start, deterministic, probabilities, rewards, path);
+	}
+
+	/**
+	 * Reads the rows of the reward map, the top row (y = height-1) first
+	 */
+	private static double[] readRewards(BufferedReader reader, int width, int height, String path)
+			throws IOException {
+		double[] rewardMap = new double[width * height];
+		for (int y = height - 1; y >= 0; y--) {
+			String row = reader.readLine();
+			String[] words = (row == null) ? new String[0] : row.trim().split("\\s+");
+			if (words.length < width)
+				throw new IOException(path + ": row " + y + " of the reward map is missing or too short");
+			for (int x = 0; x < width; x++)
+				rewardMap[x + y * width] = Double.parseDouble(words[x]);
+		}
+		return rewardMap;
+	}
+
+	/**
+	 * Reads the rows of the landscape, the top row (y = height-1) first
+	 */
+	private static byte[] readRows(BufferedReader reader, int width, int height, String path) throws IOException {
+		byte[] landscape = new byte[width * height];
+		for (int y = height - 1; y >= 0; y--) {
+			String row = reader.readLine();
+			if (row == null || row.length() < width)
+				throw new IOException(path + ": row " + y + " of the map is missing or too short");
+			for (int x = 0; x < width; x++) {
+				int symbol = SYMBOLS.indexOf(row.charAt(x));
+				if (symbol < 0)
+					throw new IOException(path + ": '" + row.charAt(x) + "' at (" + x + ", " + y + ") is not a field");
+				landscape[x + y * width] = (byte) symbol;
+			}
+		}
+		return landscape;
+	}
+
+	private static void checkSize(int width, int height, String path) throws IOException {
+		if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 8)
+			throw new IOException(path + " has an invalid size " + width + "x" + height);
+	}
+
+	private static MarkovDecisionProblem build(int width, int height, byte[] landscape, double[] rewardMap,
+			int start, boolean deterministic, double[] probabilities, double[] rewards, String path)
+			throws IOException {
+		if (start < 0 || start >= landscape.length)
+			throw new IOException(path + " has an initial state outside of the landscape");
+		for (byte field : landscape) {
+			if (field < 0 || field >= FIELDS.length)
+				throw new IOException(path + " has an unknown field " + field);
+		}
+		MarkovDecisionProblem mdp = new MarkovDecisionProblem(width, height, landscape);
+		mdp.setInitialState(start);
+		if (deterministic)
+			mdp.setDeterministic();
+		mdp.setProbsStep(probabilities[0], probabilities[1], probabilities[2], probabilities[3]);
+		mdp.setPosReward(rewards[0]);
+		mdp.setNegReward(rewards[1]);
+		mdp.setNoReward(rewards[2]);
+		mdp.setRewardMap(rewardMap);
+		mdp.restart();
+		return mdp;
+	}
+
+	/**
+	 * Saves the map of the given MDP in the binary format
+	 * @param mdp
+	 * @param path
+	 * @throws IOException
+	 */
+	public static void save(MarkovDecisionProblem mdp, String path) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(mdp.getWidth());
+			out.writeInt(mdp.getHeight());
+			out.writeInt(mdp.getInitialState());
+			out.writeBoolean(mdp.isDeterministic());
+			for (double probability : mdp.getTransitionProbs())
+				out.writeDouble(probability);
+			for (double reward : mdp.getRewardVals())
+				out.writeDouble(reward);
+			byte[] landscape = mdp.getLandscape();
+			int state = 0;
+			while (state < landscape.length) {
+				int end = state + 1;
+				while (end < landscape.length && landscape[end] == landscape[state])
+					end++;
+				out.writeByte(landscape[state]);
+				writeVarint(out, end - state);
+				state = end;
+			}
+			double[] rewardMap = mdp.getRewardMap();
+			out.writeBoolean(rewardMap != null);
+			if (rewardMap != null) {
+				state = 0;
+				while (state < rewardMap.length) {
+					int end = state + 1;
+					// Compares the bits, so runs of NaN are stored as runs as well
+					while (end < rewardMap.length
+							&& Double.doubleToLongBits(rewardMap[end]) == Double.doubleToLongBits(rewardMap[state]))
+						end++;
+					out.writeDouble(rewardMap[state]);
+					writeVarint(out, end - state);
+					state = end;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Saves the map of the given MDP in the text format
+	 * @param mdp, whose landscape only has obstacles, empty fields, rewards and negative rewards
+	 * @param path
+	 * @throws IOException
+	 */
+	public static void saveText(MarkovDecisionProblem mdp, String path) throws IOException {
+		int width = mdp.getWidth();
+		double[] probabilities = mdp.getTransitionProbs();
+		double[] rewards = mdp.getRewardVals();
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+			out.write("size " + width + " " + mdp.getHeight() + "\n");
+			out.write("start " + mdp.getStateX(mdp.getInitialState()) + " " + mdp.getStateY(mdp.getInitialState()) + "\n");
+			out.write("rewards " + rewards[0] + " " + rewards[1] + " " + rewards[2] + "\n");
+			out.write("probabilities " + probabilities[0] + " " + probabilities[1] + " " + probabilities[2] + " "
+					+ probabilities[3] + "\n");
+			out.write(mdp.isDeterministic() ? "deterministic\n" : "stochastic\n");
+			out.write("map\n");
+			byte[] landscape = mdp.getLandscape();
+			char[] row = new char[width];
+			for (int y = mdp.getHeight() - 1; y >= 0; y--) {
+				for (int x = 0; x < width; x++) {
+					if (landscape[x + y * width] >= SYMBOLS.length())
+						throw new IOException(FIELDS[landscape[x + y * width]] + " cannot be saved as text");
+					row[x] = SYMBOLS.charAt(landscape[x + y * width]);
+				}
+				out.write(row);
+				out.write('\n');
+			}
+			double[] rewardMap = mdp.getRewardMap();
+			if (rewardMap != null) {
+				out.write("rewardmap\n");
+				for (int y = mdp.getHeight() - 1; y >= 0; y--) {
+					for (int x = 0; x < width; x++)
+						out.write(((x > 0) ? " " : "") + rewardMap[x + y * width]);
+					out.write('\n');
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a positive number in 7-bit groups, least significant first; the high bit says another group follows
+	 */
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarint(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		return -1;
+	}
+}
@@ -1,5 +1,6 @@
 package nl.ru.ai.vroon.mdp;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import javax.swing.JFrame;
 
@@ -11,7 +12,7 @@ import javax.swing.JFrame;
  * @author Jered Vroon & Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
  *
  */
-public class MarkovDecisionProblem {
+public class MarkovDecisionProblem implements Environment {
     
         public double[] getTransitionProbs() {
             return new double[]{pPerform, pSidestep, pBackstep, pNoStep};
@@ -25,25 +26,32 @@ public class MarkovDecisionProblem {
 	/// FIELDS
 	/////////////////////////////////////////////////////////
 	
-	// The collection of grid positions that can be visited:
-	private Field[][] landscape;
+	// All kinds of fields, indexed by the ordinals stored in the landscape:
+	private static final Field[] FIELDS = Field.values();
+	private static final byte EMPTY = (byte) Field.EMPTY.ordinal(),
+							  REWARD = (byte) Field.REWARD.ordinal(),
+							  NEGREWARD = (byte) Field.NEGREWARD.ordinal();
+	
+	// The collection of grid positions that can be visited, stored row-major as Field ordinals
+	// (i.e. the field at (x, y) lives at state id x + y*width):
+	private byte[] landscape;
+	// The state reached by each Action in each state (kept up to date by setField):
+	private SuccessorIndex successors;
 	private int width = 4,
 				height = 3;
 	
-	// The current position of the agent
-	private int xPosition = 0,
-				yPosition = 0;
+	// The current position (state id) of the agent
+	private int position = 0;
 	
-	// The positions of the agent in state 0:
-	private int initXPos = 0,
-				initYPos = 0;
+	// The position (state id) of the agent in state 0:
+	private int initPosition = 0;
 	
 	
 	// Boolean determining if Actions are performed deterministically or not
 	private boolean deterministic = false;
 
-	// Random number generator for doing the Actions stochastically:
-	private static Random rand = new Random();
+	// Random number generator for doing the Actions stochastically (one per MDP, see setRandom):
+	private SplitMixRandom rand = new SplitMixRandom();
 	// ... and the probabilities for each (mis)interpretation of each Action:
 	private double 	pPerform = 0.8, 	// probability of action being executed as planned 
 					pSidestep = 0.2,	// probability of a sidestep being executed
@@ -55,6 +63,10 @@ public class MarkovDecisionProblem {
 	private double 	posReward = 1,		// reward for positive end state
 					negReward = -1,		// reward for negative end state
 					noReward = -0.04;	// reward for the other states
+	// The same rewards, indexed by Field ordinal:
+	private final double[] fieldRewards = new double[FIELDS.length];
+	// The reward given for each state id, or null to give the reward of its field (see setRewardMap):
+	private double[] rewardMap = null;
 	
 	// Boolean maintaining if an end state has been reached:
 	private boolean terminated = false;
@@ -64,10 +76,26 @@ public class MarkovDecisionProblem {
 	// The time that is waited between drawing each action performed:
 	private int waittime = 500;
 	private boolean showProgress = true;
+	// Frames per second when drawing asynchronously, or 0 to draw synchronously (see setFrameRate):
+	private int frameRate = 0;
+	// The copy of the landscape shared by snapshots, or null if the landscape changed since it was made:
+	private byte[] landscapeCopy = null;
+	// The overlay drawn on top of the landscape (see setOverlay):
+	private double[] overlayValues = null;
+	private byte[] overlayPolicy = null;
+	private double overlayScale = 0;
+	// The state ids whose field or overlay changed since the last snapshot handed to the display,
+	// or all of them if allChanged (see takeSnapshot):
+	private int[] changedStates = new int[16];
+	private int changedCount = 0;
+	private boolean allChanged = true;
 	
 	// Counts the number of actions that has been performed
 	private int actionsCounter = 0;
 	
+	// Get notified when a field changes (see setField)
+	private final ArrayList<LandscapeListener> listeners = new ArrayList<LandscapeListener>();
+	
 	/////////////////////////////////////////////////////////
 	/// FUNCTIONS
 	/////////////////////////////////////////////////////////
@@ -84,10 +112,9 @@ public class MarkovDecisionProblem {
 		height = 3;
 		
 		// Make and fill the fields:
-		landscape = new Field[width][height];
-		for (int i = 0; i < height; i++)
-			for (int j = 0; j < width; j++)
-				landscape[j][i] = Field.EMPTY;
+		landscape = new byte[width * height];
+		Arrays.fill(landscape, (byte) Field.EMPTY.ordinal());
+		successors = new SuccessorIndex(width, height, landscape);
 		setField(1,1,Field.OBSTACLE);
 		setField(3,1,Field.NEGREWARD);
 		setField(3,2,Field.REWARD);
@@ -104,28 +131,62 @@ public class MarkovDecisionProblem {
 	 * @param height
 	 */
 	public MarkovDecisionProblem(int width, int height) {
+		this(width, height, true);
+	}
+	
+	/**
+	 * Constructs a basic MDP with the given width and height, like MarkovDecisionProblem(width, height).
+	 * If showProgress is false, nothing is drawn (so no window is opened) until setShowProgress(true) is called.
+	 * @param width
+	 * @param height
+	 * @param showProgress
+	 */
+	public MarkovDecisionProblem(int width, int height, boolean showProgress) {
 		defaultSettings();
+		this.showProgress = showProgress;
 		
 		this.width = width;
 		this.height = height;
 		
 		// Make and fill the fields:
-		landscape = new Field[this.width][this.height];
-		for (int i = 0; i < this.height; i++)
-			for (int j = 0; j < this.width; j++)
-				landscape[j][i] = Field.EMPTY;
+		landscape = new byte[this.width * this.height];
+		Arrays.fill(landscape, (byte) Field.EMPTY.ordinal());
+		successors = new SuccessorIndex(this.width, this.height, landscape);
 		pDrawMDP();
 	}
 	
+	/**
+	 * Constructs an MDP with the given landscape, for instance a loaded (see MapFile) or generated one.
+	 * Nothing is drawn until setShowProgress(true) is called.
+	 * All other settings are the same as in the MDP described in Chapter 17 of Russell & Norvig
+	 * @param width
+	 * @param height
+	 * @param landscape, the Field ordinal of every state id (not copied, so it should not be changed afterwards)
+	 * @throws IllegalArgumentException if the landscape does not have width*height valid Field ordinals
+	 */
+	public MarkovDecisionProblem(int width, int height, byte[] landscape) {
+		if (landscape.length != width * height)
+			throw new IllegalArgumentException("The landscape should have width*height fields.");
+		for (byte field : landscape) {
+			if (field < 0 || field >= FIELDS.length)
+				throw new IllegalArgumentException(field + " is not a Field ordinal.");
+		}
+		defaultSettings();
+		this.showProgress = false;
+		
+		this.width = width;
+		this.height = height;
+		this.landscape = landscape;
+		successors = new SuccessorIndex(this.width, this.height, landscape);
+	}
+	
 	/**
 	 * Sets most parameters (except for the landscape, its width and height) to their default value
 	 */
 	public void defaultSettings(){
-		xPosition = 0;
-		yPosition = 0;
+		position = 0;
 		
-		initXPos = 0;
-		initYPos = 0;
+		initPosition = 0;
 		
 		deterministic = false;
 
@@ -137,6 +198,7 @@ public class MarkovDecisionProblem {
 		posReward = 1;
 		negReward = -1;	
 		noReward = -0.04;
+		updateFieldRewards();
 
 		terminated = false;
 		
@@ -177,56 +239,11 @@ public class MarkovDecisionProblem {
 	
 	/**
 	 * Executes the given action as is
-	 * (i.e. translates Action to an actual function being performed)
+	 * (i.e. moves the agent to the neighbouring state in that direction, if possible)
 	 * @param action
 	 */
 	private void doAction(Action action) {
-		switch (action){
-		case UP:
-			moveUp();
-			break;
-		case DOWN:
-			moveDown();
-			break;
-		case LEFT:
-			moveLeft();
-			break;
-		case RIGHT:
-			moveRight();
-			break;
-		}
-	}
-
-	/**
-	 * Moves the agent up (if possible).
-	 */
-	private void moveUp(){
-		if (yPosition < (height-1) && landscape[xPosition][yPosition+1] != Field.OBSTACLE)
-			yPosition++;
-	}
-	
-	/**
-	 * Moves the agent down (if possible).
-	 */
-	private void moveDown(){
-		if (yPosition > 0 && landscape[xPosition][yPosition-1] != Field.OBSTACLE)
-			yPosition--;
-	}
-	
-	/**
-	 * Moves the agent left (if possible).
-	 */
-	private void moveLeft(){
-		if (xPosition > 0 && landscape[xPosition-1][yPosition] != Field.OBSTACLE)
-			xPosition--;
-	}
-	
-	/**
-	 * Moves the agent right (if possible).
-	 */
-	private void moveRight(){
-		if (xPosition < (width-1) && landscape[xPosition+1][yPosition] != Field.OBSTACLE)
-			xPosition++;
+		position = successors.get(position, action);
 	}
 	
 	/**
@@ -234,8 +251,7 @@ public class MarkovDecisionProblem {
 	 */
 	public void restart(){
 		terminated = false;
-		xPosition = initXPos;
-		yPosition = initYPos;
+		position = initPosition;
 		actionsCounter = 0;
 		pDrawMDP();
 	}
@@ -248,20 +264,15 @@ public class MarkovDecisionProblem {
 		// If we are terminated, no rewards can be gained anymore (i.e. every action is futile):
 		if (terminated) return 0;
 		
-		switch(landscape[xPosition][yPosition]){
-		case EMPTY:
-			return noReward;
-		case REWARD:
-			terminated = true;
-			return posReward;
-		case NEGREWARD:
+		byte field = landscape[position];
+		if (field == REWARD || field == NEGREWARD)
 			terminated = true;
-			return negReward;
+		else if (field != EMPTY) {
+			// If something went wrong:
+			System.err.println("ERROR: MDP: getReward(): agent is not in an empty, reward or negreward field...");
+			return 0;
 		}
-		
-		// If something went wrong:
-		System.err.println("ERROR: MDP: getReward(): agent is not in an empty, reward or negreward field...");
-		return 0;
+		return getStateReward(position);
 	}
 	
 	/////////////////////////////////////////////////////////
@@ -278,18 +289,103 @@ public class MarkovDecisionProblem {
 	 */
 	public void setField(int xpos, int ypos, Field field){
 		if (xpos >= 0 && xpos < width && ypos >= 0 && ypos < height)
-			landscape[xpos][ypos] = field;
+			changeField(getStateId(xpos, ypos), field);
 		pDrawMDP();
 	}
 	
+	/**
+	 * Sets the field with the given state id to the given field.
+	 * Updates the visual display.
+	 * @param state, x + y*width
+	 * @param field
+	 */
+	public void setField(int state, Field field){
+		if (state >= 0 && state < landscape.length)
+			changeField(state, field);
+		pDrawMDP();
+	}
+	
+	/**
+	 * Sets the field and notifies the listeners if it changed
+	 */
+	private void changeField(int state, Field field){
+		Field oldField = FIELDS[landscape[state]];
+		landscape[state] = (byte) field.ordinal();
+		if (oldField != field) {
+			landscapeCopy = null;
+			markChanged(state);
+			successors.update(state, landscape);
+			for (LandscapeListener listener : listeners) {
+				listener.fieldChanged(state, oldField, field);
+			}
+		}
+	}
+	
+	/**
+	 * Replaces the whole landscape at once, for instance when loading a map (see MapFile).
+	 * Unlike calling setField for every state, the display is updated only once and the successors are
+	 * recomputed in one pass. The listeners are notified of every field that changed.
+	 * @param landscape, the Field ordinal of every state id (copied)
+	 */
+	public void setLandscape(byte[] landscape){
+		if (landscape.length != this.landscape.length) {
+			System.err.println("ERROR:MDP:setLandscape: the landscape should have width*height fields.");
+			return;
+		}
+		for (byte field : landscape) {
+			if (field < 0 || field >= FIELDS.length) {
+				System.err.println("ERROR:MDP:setLandscape: " + field + " is not a Field ordinal.");
+				return;
+			}
+		}
+		byte[] oldLandscape = listeners.isEmpty() ? null : this.landscape.clone();
+		System.arraycopy(landscape, 0, this.landscape, 0, landscape.length);
+		landscapeCopy = null;
+		allChanged = true;
+		successors.rebuild(this.landscape);
+		if (oldLandscape != null) {
+			for (int state = 0; state < landscape.length; state++) {
+				if (oldLandscape[state] != landscape[state]) {
+					for (LandscapeListener listener : listeners) {
+						listener.fieldChanged(state, FIELDS[oldLandscape[state]], FIELDS[landscape[state]]);
+					}
+				}
+			}
+		}
+		pDrawMDP();
+	}
+	
+	/**
+	 * Makes the given listener get notified of every change of a field made with setField or setLandscape
+	 * @param listener
+	 */
+	public void addLandscapeListener(LandscapeListener listener){
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Stops notifying the given listener
+	 * @param listener
+	 */
+	public void removeLandscapeListener(LandscapeListener listener){
+		listeners.remove(listener);
+	}
+	
 	/**
 	 * Moves the agent to the given state (x and y coordinate)
 	 * @param xpos
 	 * @param ypos
 	 */
 	public void setState(int xpos, int ypos){
-		xPosition = xpos;
-		yPosition = ypos;
+		setState(getStateId(xpos, ypos));
+	}
+	
+	/**
+	 * Moves the agent to the given state id
+	 * @param state, x + y*width
+	 */
+	public void setState(int state){
+		position = state;
 		pDrawMDP();
 	}
 	
@@ -299,8 +395,15 @@ public class MarkovDecisionProblem {
 	 * @param ypos
 	 */
 	public void setInitialState(int xpos, int ypos){
-		initXPos = xpos;
-		initYPos = ypos;
+		initPosition = getStateId(xpos, ypos);
+	}
+	
+	/**
+	 * sets the default state id for the agent (used in restart() )
+	 * @param state, x + y*width
+	 */
+	public void setInitialState(int state){
+		initPosition = state;
 	}
 	
 	/**
@@ -329,7 +432,7 @@ public class MarkovDecisionProblem {
 	 */
 	public void setProbsStep(double pPerform, double pSidestep, double pBackstep, double pNoStep) {
 		double total = pPerform + pSidestep + pBackstep + pNoStep;
-		if (total == 1.0)
+		if (Math.abs(total - 1.0) > 1E-9)
 			System.err.println("ERROR: MDP: setProbsStep: the given probabilities do not add up to 1. I will normalize to compensate.");
 		this.pPerform = pPerform / total;
 		this.pSidestep = pSidestep / total;
@@ -338,27 +441,77 @@ public class MarkovDecisionProblem {
 	}
 
 	/**
-	 * Setter to set the reward given when a Field.REWARD is reached
+	 * Seeds the random number generator used for doing the Actions stochastically,
+	 * so the outcomes of a run can be reproduced.
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.rand = new SplitMixRandom(seed);
+	}
+	
+	/**
+	 * Sets the random number generator used for doing the Actions stochastically.
+	 * It should not be shared with another thread.
+	 * @param rand
+	 */
+	public void setRandom(SplitMixRandom rand) {
+		this.rand = rand;
+	}
+	
+	/**
+	 * Returns the random number generator used for doing the Actions stochastically
+	 * @return
+	 */
+	public SplitMixRandom getRandom() {
+		return rand;
+	}
+
+	/**
+	 * Setter to set the reward given when a Field.REWARD is reached (unless there is a reward map)
 	 * @param posReward
 	 */
 	public void setPosReward(double posReward) {
 		this.posReward = posReward;
+		updateFieldRewards();
 	}
 
 	/**
-	 * Setter to set the reward given when a Field.NEGREWARD is reached
+	 * Setter to set the reward given when a Field.NEGREWARD is reached (unless there is a reward map)
 	 * @param posReward
 	 */
 	public void setNegReward(double negReward) {
 		this.negReward = negReward;
+		updateFieldRewards();
 	}
 
 	/**
-	 * Setter to set the reward given when a Field.EMPTY is reached
+	 * Setter to set the reward given when a Field.EMPTY is reached (unless there is a reward map)
 	 * @param posReward
 	 */
 	public void setNoReward(double noReward) {
 		this.noReward = noReward;
+		updateFieldRewards();
+	}
+	
+	private void updateFieldRewards() {
+		fieldRewards[EMPTY] = noReward;
+		fieldRewards[REWARD] = posReward;
+		fieldRewards[NEGREWARD] = negReward;
+	}
+	
+	/**
+	 * Sets the reward given for reaching each state, for instance terrain costs that differ per field.
+	 * Without a reward map (the default) a state gives the reward of its kind of field.
+	 * The map decides only the rewards: the fields still decide which states are end states and obstacles.
+	 * @param rewardMap, the reward of every state id (not copied, so it should not be changed afterwards),
+	 * or null to give the reward of the fields again
+	 */
+	public void setRewardMap(double[] rewardMap) {
+		if (rewardMap != null && rewardMap.length != landscape.length) {
+			System.err.println("ERROR:MDP:setRewardMap: the reward map should have width*height rewards.");
+			return;
+		}
+		this.rewardMap = rewardMap;
 	}
 	
 	/////////////////////////////////////////////////////////
@@ -370,7 +523,7 @@ public class MarkovDecisionProblem {
 	 * @return a number between 0 and width
 	 */
 	public int getStateXPosition(){
-		return xPosition;
+		return position % width;
 	}
 
 	/**
@@ -378,7 +531,15 @@ public class MarkovDecisionProblem {
 	 * @return a number between 1 and height
 	 */
 	public int getStateYPosition(){
-		return yPosition;
+		return position / width;
+	}
+	
+	/**
+	 * Returns the id of the current state
+	 * @return x + y*width of the agent's position
+	 */
+	public int getState(){
+		return position;
 	}
 	
 	/**
@@ -405,6 +566,42 @@ public class MarkovDecisionProblem {
 		return height;
 	}
 	
+	/**
+	 * Returns the number of states (grid positions) in the landscape
+	 * @return width*height
+	 */
+	public int getNumStates() {
+		return landscape.length;
+	}
+	
+	/**
+	 * Returns the state id of the given x and y coordinates
+	 * @param xpos
+	 * @param ypos
+	 * @return xpos + ypos*width
+	 */
+	public int getStateId(int xpos, int ypos) {
+		return xpos + ypos * width;
+	}
+	
+	/**
+	 * Returns the x coordinate of the given state id
+	 * @param state
+	 * @return
+	 */
+	public int getStateX(int state) {
+		return state % width;
+	}
+	
+	/**
+	 * Returns the y coordinate of the given state id
+	 * @param state
+	 * @return
+	 */
+	public int getStateY(int state) {
+		return state / width;
+	}
+	
 	/**
 	 * Returns if this MDP is determinstic
 	 * @return
@@ -413,6 +610,31 @@ public class MarkovDecisionProblem {
 		return deterministic;
 	}
 	
+	/**
+	 * Returns the state id the agent starts in after a restart()
+	 * @return
+	 */
+	public int getInitialState(){
+		return initPosition;
+	}
+	
+	/**
+	 * Returns a copy of the landscape: the Field ordinal of every state id
+	 * @return
+	 */
+	public byte[] getLandscape(){
+		return landscape.clone();
+	}
+	
+	/**
+	 * Returns the index of the state reached by each Action in each state.
+	 * It is kept up to date when fields change, and should not be modified; use copy() for a snapshot.
+	 * @return
+	 */
+	public SuccessorIndex getSuccessorIndex(){
+		return successors;
+	}
+	
 	/**
 	 * Returns the number of actions that has been performed since the last (re)start.
 	 * @return
@@ -421,6 +643,24 @@ public class MarkovDecisionProblem {
 		return actionsCounter;
 	}
 
+	/**
+	 * Returns the reward map (see setRewardMap), which should not be modified
+	 * @return the reward of every state id, or null if the states give the reward of their field
+	 */
+	public double[] getRewardMap(){
+		return rewardMap;
+	}
+	
+	/**
+	 * Returns the reward given for reaching the state with the given state id:
+	 * its reward in the reward map, or else the reward of its field (0 for an obstacle)
+	 * @param state, x + y*width
+	 * @return
+	 */
+	public double getStateReward(int state){
+		return (rewardMap != null) ? rewardMap[state] : fieldRewards[landscape[state]];
+	}
+
 	/**
 	 * Returns the field with the given x and y coordinates
 	 * @param xpos, should fall within the landscape
@@ -429,13 +669,33 @@ public class MarkovDecisionProblem {
 	 */
 	public Field getField(int xpos, int ypos) {
 		if (xpos >= 0 && xpos < width && ypos >= 0 && ypos < height)
-			return landscape[xpos][ypos];
+			return FIELDS[landscape[getStateId(xpos, ypos)]];
 		else{
 			System.err.println("ERROR:MDP:getField:you request a field that does not exist!");
 			return Field.OUTOFBOUNDS;
 		}
 	}
 	
+	/**
+	 * Returns the field with the given state id.
+	 * Does no bounds checking, so the state should fall within the landscape.
+	 * @param state, x + y*width
+	 * @return
+	 */
+	public Field getField(int state) {
+		return FIELDS[landscape[state]];
+	}
+	
+	/**
+	 * Returns the ordinal of the field with the given state id
+	 * (i.e. the raw value stored in the landscape).
+	 * @param state, x + y*width
+	 * @return
+	 */
+	public byte getFieldOrdinal(int state) {
+		return landscape[state];
+	}
+	
 	/////////////////////////////////////////////////////////
 	/// DISPLAY STUFF
 	/////////////////////////////////////////////////////////
@@ -450,9 +710,17 @@ public class MarkovDecisionProblem {
 	
 	/**
 	 * Draws this MDP. If showProgress is set to true called by MDP every time something changes.
-	 * In that case also waits the waittime.
+	 * When drawing synchronously it also waits the waittime; when drawing asynchronously (see setFrameRate)
+	 * it only publishes a snapshot for the drawing thread, so it does not slow the simulation down.
 	 */
 	public void drawMDP() {
+		if (frameRate > 0) {
+			if ( frame == null )
+				openFrame();
+			frame.publish(takeSnapshot());
+			return;
+		}
+		
 		// (1) sleep
 		if (showProgress ){
 			Thread.currentThread();
@@ -465,15 +733,111 @@ public class MarkovDecisionProblem {
 		
 		// (2) repaint
 		if ( frame == null ) {
-			frame = new DrawFrame(this);
-			frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-			frame.setVisible(true);
+			openFrame();
 		} else { 
 			frame.drawContent();
-			frame.repaint();
+		}
+	}
+	
+	private void openFrame() {
+		frame = new DrawFrame(this);
+		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		frame.setVisible(true);
+		if (frameRate > 0)
+			frame.startDrawing(frameRate);
+	}
+	
+	/**
+	 * Returns an immutable picture of the current landscape, agent and overlay, which can be drawn on another thread
+	 * @return
+	 */
+	public MDPSnapshot snapshot() {
+		return snapshot(null);
+	}
+	
+	/**
+	 * Returns a snapshot for the display, with the states that changed since the previous one it was handed
+	 * @return
+	 */
+	MDPSnapshot takeSnapshot() {
+		MDPSnapshot snapshot = snapshot(allChanged ? null : Arrays.copyOf(changedStates, changedCount));
+		allChanged = false;
+		changedCount = 0;
+		return snapshot;
+	}
+	
+	private MDPSnapshot snapshot(int[] changed) {
+		if (landscapeCopy == null)
+			landscapeCopy = landscape.clone();
+		byte field = landscape[position];
+		boolean rewarding = field == EMPTY || field == REWARD || field == NEGREWARD;
+		double reward = (!terminated && rewarding) ? getStateReward(position) : 0;
+		return new MDPSnapshot(width, height, landscapeCopy, position, reward, actionsCounter, overlayValues,
+				overlayScale, overlayPolicy, changed);
+	}
+	
+	/**
+	 * Records that the given state looks different, so the display only redraws the changed states
+	 */
+	private void markChanged(int state) {
+		if (allChanged)
+			return;
+		if (changedCount == changedStates.length) {
+			// Past one entry per state it is cheaper to redraw everything
+			if (changedCount >= landscape.length) {
+				allChanged = true;
+				return;
+			}
+			changedStates = Arrays.copyOf(changedStates, Math.min(landscape.length, changedCount * 2));
+		}
+		changedStates[changedCount++] = state;
+	}
+	
+	/**
+	 * Makes the display draw asynchronously: the simulation only publishes snapshots, which are drawn at the given
+	 * frame rate on the event dispatch thread, and the waittime is not used.
+	 * A frame rate of 0 (the default) draws synchronously again: every change is drawn after waiting the waittime.
+	 * @param framesPerSecond
+	 */
+	public void setFrameRate(int framesPerSecond){
+		if (framesPerSecond < 0 || framesPerSecond > 1000) {
+			System.err.println("ERROR:MDP:setFrameRate: the frame rate should be between 0 and 1000.");
+			return;
+		}
+		frameRate = framesPerSecond;
+		if (frame != null) {
+			if (frameRate > 0)
+				frame.startDrawing(frameRate);
+			else
+				frame.stopDrawing();
 		}
 	}
 	
+	/**
+	 * Sets the values and policy drawn on top of the landscape (for instance those of a planner).
+	 * The arrays are drawn as they are, so pass copies if they are still being changed.
+	 * Only the states whose value or action differs from the previous overlay are redrawn.
+	 * @param values, the value of every state id, or null
+	 * @param policy, the action ordinal of every state id (negative for none), or null
+	 */
+	public void setOverlay(double[] values, byte[] policy){
+		if ((values == null) != (overlayValues == null) || (policy == null) != (overlayPolicy == null)
+				|| (values != null && values == overlayValues) || (policy != null && policy == overlayPolicy)) {
+			// Shown or hidden, or the same array again (which may have been changed in place)
+			allChanged = true;
+		} else if (!allChanged) {
+			for (int state = 0; state < landscape.length; state++) {
+				if ((values != null && values[state] != overlayValues[state])
+						|| (policy != null && policy[state] != overlayPolicy[state]))
+					markChanged(state);
+			}
+		}
+		overlayValues = values;
+		overlayPolicy = policy;
+		overlayScale = MDPSnapshot.scale(values);
+		pDrawMDP();
+	}
+	
 	/**
 	 * Setter to set the speed with which the display is updated at maximum
 	 * @param waittime in ms
@@ -494,4 +858,12 @@ public class MarkovDecisionProblem {
 		showProgress = show;
 	}
 	
+	/**
+	 * Returns if this MDP shows its progress on the display
+	 * @return
+	 */
+	public boolean isShowProgress(){
+		return showProgress;
+	}
+	
 }
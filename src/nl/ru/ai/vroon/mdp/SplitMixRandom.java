@@ -0,0 +1,143 @@
+package nl.ru.ai.vroon.mdp;
+
+/**
+ * Fast, seedable pseudo random number generator (the SplitMix64 algorithm, as used by
+ * java.util.SplittableRandom).
+ * 
+ * Unlike java.util.Random an instance is not thread-safe, so it does not pay for an atomic seed update on
+ * every number: give every thread (or environment) its own instance. split() derives a new, statistically
+ * independent generator in a deterministic way, so a seeded run of parallel workers can be reproduced.
+ * @author Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
+ *
+ */
+public final class SplitMixRandom {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT = 0x1.0p-53;
+	
+	// Used to give every unseeded generator a different seed:
+	private static long defaultSeed = mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime());
+	
+	private long seed;
+	private final long gamma;
+	
+	/**
+	 * Constructs a generator with the given seed
+	 * @param seed
+	 */
+	public SplitMixRandom(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+	
+	/**
+	 * Constructs a generator with a seed that differs from that of every other generator made this way
+	 */
+	public SplitMixRandom() {
+		this(nextDefaultSeed(), GOLDEN_GAMMA);
+	}
+	
+	private SplitMixRandom(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+	
+	private static synchronized long nextDefaultSeed() {
+		defaultSeed += 2 * GOLDEN_GAMMA;
+		return mix64(defaultSeed);
+	}
+	
+	/**
+	 * Returns a new generator, derived from (and advancing) this one.
+	 * Splitting a generator with the same state always gives the same new generator.
+	 * @return
+	 */
+	public SplitMixRandom split() {
+		return new SplitMixRandom(nextLong(), mixGamma(nextSeed()));
+	}
+	
+	/**
+	 * Returns n generators split off this one, e.g. one for each parallel worker
+	 * @param n
+	 * @return
+	 */
+	public SplitMixRandom[] split(int n) {
+		SplitMixRandom[] generators = new SplitMixRandom[n];
+		for (int i = 0; i < n; i++)
+			generators[i] = split();
+		return generators;
+	}
+	
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+	
+	public int nextInt() {
+		return (int) (mix64(nextSeed()) >>> 32);
+	}
+	
+	/**
+	 * Returns a uniformly distributed int in [0, bound)
+	 * @param bound, should be positive
+	 * @return
+	 */
+	public int nextInt(int bound) {
+		int r = nextInt() >>> 1;
+		int m = bound - 1;
+		if ((bound & m) == 0)
+			return (int) ((bound * (long) r) >> 31);
+		// Reject the values that would make the result biased:
+		for (int u = r; u - (r = u % bound) + m < 0; u = nextInt() >>> 1)
+			;
+		return r;
+	}
+	
+	/**
+	 * Returns a uniformly distributed double in [0, 1)
+	 * @return
+	 */
+	public double nextDouble() {
+		return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+	}
+	
+	public boolean nextBoolean() {
+		return mix64(nextSeed()) < 0;
+	}
+	
+	/**
+	 * Returns the internal state of this generator (e.g. to store it in a checkpoint)
+	 * @return the seed and the gamma of this generator
+	 */
+	public long[] getState() {
+		return new long[]{seed, gamma};
+	}
+	
+	/**
+	 * Constructs a generator that continues exactly where the generator with the given state left off
+	 * @param state, as returned by getState()
+	 * @return
+	 */
+	public static SplitMixRandom fromState(long[] state) {
+		return new SplitMixRandom(state[0], state[1]);
+	}
+	
+	private long nextSeed() {
+		return seed += gamma;
+	}
+	
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Turns a seed into a gamma: odd, and with enough bit transitions to mix well
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
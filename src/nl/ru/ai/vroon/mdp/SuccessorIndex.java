@@ -0,0 +1,104 @@
+package nl.ru.ai.vroon.mdp;
+
+/**
+ * The state reached by performing each Action as is in each state, precomputed for a landscape:
+ * entry state*4 + action.ordinal() holds the id of the neighbouring state in the direction of the action,
+ * or the state itself if that neighbour is outside the grid or an obstacle.
+ * So stepping the agent is a single table lookup instead of bounds and obstacle checks.
+ * @author Dennis den Hollander (s4776658) & Kasper Karelse (s4794443)
+ *
+ */
+public final class SuccessorIndex {
+	
+	public static final int NUM_ACTIONS = Action.values().length;
+	private static final Action[] ACTIONS = Action.values();
+	private static final byte OBSTACLE = (byte) Field.OBSTACLE.ordinal();
+	
+	private final int width, height;
+	private final int[] successors;
+	
+	/**
+	 * Builds the index of the given landscape
+	 * @param width
+	 * @param height
+	 * @param landscape, the Field ordinal of every state id
+	 */
+	public SuccessorIndex(int width, int height, byte[] landscape) {
+		this.width = width;
+		this.height = height;
+		this.successors = new int[landscape.length * NUM_ACTIONS];
+		rebuild(landscape);
+	}
+	
+	private SuccessorIndex(SuccessorIndex other) {
+		this.width = other.width;
+		this.height = other.height;
+		this.successors = other.successors.clone();
+	}
+	
+	/**
+	 * Returns an independent copy of this index, which does not follow later changes of the landscape
+	 * @return
+	 */
+	public SuccessorIndex copy() {
+		return new SuccessorIndex(this);
+	}
+	
+	/**
+	 * Returns the state reached by performing the action as is
+	 * @param state
+	 * @param action, action ordinal
+	 * @return the neighbouring state id, or state if the move is blocked
+	 */
+	public int get(int state, int action) {
+		return successors[state * NUM_ACTIONS + action];
+	}
+	
+	/**
+	 * Returns the state reached by performing the action as is
+	 * @param state
+	 * @param action
+	 * @return the neighbouring state id, or state if the move is blocked
+	 */
+	public int get(int state, Action action) {
+		return successors[state * NUM_ACTIONS + action.ordinal()];
+	}
+	
+	/**
+	 * Updates the index after the field with the given state id has changed:
+	 * only the moves of its neighbours into it can have changed.
+	 * @param state
+	 * @param landscape, the changed landscape
+	 */
+	void update(int state, byte[] landscape) {
+		int x = state % width, y = state / width;
+		for (Action action : ACTIONS) {
+			int nx = x + action.GetDX(), ny = y + action.GetDY();
+			if (nx >= 0 && nx < width && ny >= 0 && ny < height)
+				compileState(nx + ny * width, landscape);
+		}
+	}
+	
+	/**
+	 * Recompiles the whole index after (possibly) every field has changed
+	 * @param landscape, the changed landscape
+	 */
+	void rebuild(byte[] landscape) {
+		for (int state = 0; state < landscape.length; state++)
+			compileState(state, landscape);
+	}
+	
+	private void compileState(int state, byte[] landscape) {
+		int x = state % width, y = state / width;
+		for (int action = 0; action < NUM_ACTIONS; action++) {
+			int nx = x + ACTIONS[action].GetDX(), ny = y + ACTIONS[action].GetDY();
+			int next = nx + ny * width;
+			boolean blocked = nx < 0 || nx >= width || ny < 0 || ny >= height || landscape[next] == OBSTACLE;
+			successors[state * NUM_ACTIONS + action] = blocked ? state : next;
+		}
+	}
+	
+	public int getNumStates() {
+		return successors.length / NUM_ACTIONS;
+	}
+}